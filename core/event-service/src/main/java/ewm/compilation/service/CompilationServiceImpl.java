@@ -5,9 +5,12 @@ import ewm.compilation.repository.CompilationRepository;
 import ewm.dto.compilation.CompilationDto;
 import ewm.dto.compilation.CompilationDtoResponse;
 import ewm.dto.compilation.CompilationDtoUpdate;
+import ewm.dto.event.EventDto;
+import ewm.dto.user.UserDto;
 import ewm.error.exception.NotFoundException;
 import ewm.event.model.Event;
 import ewm.event.repository.EventRepository;
+import ewm.event.service.InitiatorLoader;
 import ewm.mapper.CompilationMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -28,6 +32,7 @@ public class CompilationServiceImpl implements CompilationService {
     // Зависимости
     private final CompilationRepository repository;
     private final EventRepository eventRepository;
+    private final InitiatorLoader initiatorLoader;
 
     // Методы для создания и обновления подборок
     @Transactional
@@ -43,7 +48,7 @@ public class CompilationServiceImpl implements CompilationService {
                 .build();
         Compilation savedCompilation = repository.save(compilation);
         log.info("Подборка успешно создана с id: {}", savedCompilation.getId());
-        return CompilationMapper.INSTANCE.compilationToCompilationDtoResponse(savedCompilation);
+        return toResponses(List.of(savedCompilation)).getFirst();
     }
 
     @Transactional
@@ -54,7 +59,7 @@ public class CompilationServiceImpl implements CompilationService {
         updateCompilationFields(compilation, compilationDto);
         Compilation updatedCompilation = repository.save(compilation);
         log.info("Подборка с id: {} успешно обновлена", compId);
-        return CompilationMapper.INSTANCE.compilationToCompilationDtoResponse(updatedCompilation);
+        return toResponses(List.of(updatedCompilation)).getFirst();
     }
 
     // Методы для удаления и получения подборок
@@ -78,7 +83,7 @@ public class CompilationServiceImpl implements CompilationService {
             compilations = repository.findAll(pageRequest).getContent();
         }
         log.info("Найдено {} подборок", compilations.size());
-        return CompilationMapper.INSTANCE.mapListCompilations(compilations);
+        return toResponses(compilations);
     }
 
     @Override
@@ -86,10 +91,34 @@ public class CompilationServiceImpl implements CompilationService {
         log.info("Получение подборки с id: {}", compId);
         Compilation compilation = getCompFromRepo(compId);
         log.info("Подборка с id: {} успешно получена", compId);
-        return CompilationMapper.INSTANCE.compilationToCompilationDtoResponse(compilation);
+        return toResponses(List.of(compilation)).getFirst();
     }
 
     // Вспомогательные методы
+    // Инициаторы событий всех подборок загружаются одним запросом к user-service
+    private List<CompilationDtoResponse> toResponses(List<Compilation> compilations) {
+        List<Event> events = compilations.stream()
+                .filter(compilation -> compilation.getEvents() != null)
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .toList();
+        Map<Long, UserDto> initiators = initiatorLoader.getInitiators(events);
+        List<CompilationDtoResponse> responses = CompilationMapper.INSTANCE.mapListCompilations(compilations);
+        for (int i = 0; i < compilations.size(); i++) {
+            List<Event> compilationEvents = compilations.get(i).getEvents();
+            List<EventDto> eventDtos = responses.get(i).getEvents();
+            if (compilationEvents == null || eventDtos == null) {
+                continue;
+            }
+            for (int j = 0; j < compilationEvents.size(); j++) {
+                UserDto initiator = initiators.get(compilationEvents.get(j).getInitiatorId());
+                if (initiator != null) {
+                    eventDtos.get(j).setInitiator(initiator);
+                }
+            }
+        }
+        return responses;
+    }
+
     private Compilation getCompFromRepo(Long compId) {
         log.debug("Поиск подборки с id: {}", compId);
         return repository.findById(compId)
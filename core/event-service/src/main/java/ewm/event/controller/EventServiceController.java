@@ -7,7 +7,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -27,11 +26,10 @@ public class EventServiceController implements EventClient {
     }
 
     @Override
-    public EventDto updateConfirmRequests(@PathVariable Long eventId, @RequestBody EventDto event) {
-        log.info("Обновление подтверждения запросов для события eventId: {}, данные: {}", eventId, event);
-        EventDto result = service.updateConfirmRequests(event);
-        log.info("Подтверждение запросов для события eventId: {} успешно обновлено", eventId);
-        return result;
+    public void changeConfirmedRequests(Long eventId, int delta) {
+        log.info("Изменение числа подтверждённых заявок события eventId: {} на {}", eventId, delta);
+        service.changeConfirmedRequests(eventId, delta);
+        log.info("Число подтверждённых заявок события eventId: {} успешно изменено", eventId);
     }
 
     @Override
@@ -43,5 +43,20 @@ public class Event {
     private Double lon;
     private Double rating;
 
+    // Счётчики заявок меняются только атомарными запросами EventRepository.addConfirmedRequests,
+    // поэтому save() сущности, загруженной раньше подтверждения, не перезапишет их устаревшими значениями
+    @Column(updatable = false)
     private Integer confirmedRequests = 0;
+
+    // Свободные места: participantLimit - confirmedRequests, null — число участников не ограничено.
+    // При создании вычисляется здесь, после изменения лимита — в EventRepository.syncSearchProjection
+    @Column(updatable = false)
+    private Integer availableSlots;
+
+    @PrePersist
+    void initAvailableSlots() {
+        availableSlots = participantLimit == null || participantLimit == 0
+                ? null
+                : participantLimit - (confirmedRequests == null ? 0 : confirmedRequests);
+    }
 }
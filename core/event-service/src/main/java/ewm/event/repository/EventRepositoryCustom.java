@@ -0,0 +1,33 @@
+package ewm.event.repository;
+
+import ewm.dto.event.PublicGetEventRequestDto;
+import ewm.event.model.Event;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventRepositoryCustom {
+    // Вызывается после сохранения события: пересчитывает available_slots по текущим в БД лимиту и счётчику
+    // заявок и приводит поисковую проекцию в соответствие с состоянием события —
+    // опубликованное событие записывается в event_search, остальные удаляются из неё
+    @Transactional
+    void syncSearchProjection(Event event);
+
+    // Атомарно прибавляет delta к подтверждённым заявкам и пересчитывает available_slots в events и event_search.
+    // Изменение не выполняется и возвращается false, если счётчик превысил бы лимит участников или стал отрицательным
+    @Transactional
+    boolean addConfirmedRequests(Long eventId, int delta);
+
+    // Рейтинг меняется при каждом действии пользователя, поэтому обновляется точечно в events и event_search,
+    // без сохранения всей сущности и пересчёта поискового текста
+    @Transactional
+    void updateRating(Long eventId, Double rating);
+
+    // Поиск опубликованных событий по проекции: текст ищется по tsvector и триграммному индексу.
+    // Страница сортируется по (event_date, event_id), (rating desc, event_id desc) или event_id
+    // и выбирается по курсору из params (keyset), а без курсора — по смещению from.
+    // Возвращаются идентификаторы событий страницы в порядке сортировки
+    List<Long> searchPublishedEventIds(PublicGetEventRequestDto params,
+                                       LocalDateTime rangeStart, LocalDateTime rangeEnd);
+}
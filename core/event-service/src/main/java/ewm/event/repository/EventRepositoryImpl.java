@@ -0,0 +1,174 @@
+package ewm.event.repository;
+
+import ewm.dto.event.PublicGetEventRequestDto;
+import ewm.enums.EventSort;
+import ewm.enums.EventState;
+import ewm.event.model.Event;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class EventRepositoryImpl implements EventRepositoryCustom {
+    // Текст поиска хранится в нижнем регистре: LIKE по нему использует триграммный GIN-индекс,
+    // а tsvector с конфигурацией simple находит совпадения по словам без привязки к языку
+    private static final String UPSERT_SEARCH_SQL = """
+            insert into event_search (event_id, category_id, paid, participant_limit, available_slots, event_date,
+                                      rating, search_text, search_vector)
+            select v.event_id, v.category_id, v.paid, v.participant_limit, e.available_slots, v.event_date,
+                   v.rating, v.search_text, to_tsvector('simple', v.search_text)
+            from (select ?::int8 as event_id, ?::int8 as category_id, ?::bool as paid,
+                         ?::int4 as participant_limit, ?::timestamp as event_date,
+                         ?::float8 as rating, lower(?::text) as search_text) v
+            join events e on e.id = v.event_id
+            on conflict (event_id) do update
+                set category_id       = excluded.category_id,
+                    paid              = excluded.paid,
+                    participant_limit = excluded.participant_limit,
+                    available_slots   = excluded.available_slots,
+                    event_date        = excluded.event_date,
+                    rating            = excluded.rating,
+                    search_text       = excluded.search_text,
+                    search_vector     = excluded.search_vector
+            """;
+    private static final String DELETE_SEARCH_SQL = "delete from event_search where event_id = ?";
+    // Условие проверяется по заблокированной строке, поэтому параллельные подтверждения не превысят лимит;
+    // в SET справа используются значения до обновления
+    private static final String ADD_CONFIRMED_SQL = """
+            update events
+            set confirmed_requests = coalesce(confirmed_requests, 0) + ?,
+                available_slots    = case
+                                         when participant_limit > 0
+                                             then participant_limit - coalesce(confirmed_requests, 0) - ? end
+            where id = ?
+              and coalesce(confirmed_requests, 0) + ? >= 0
+              and (? <= 0 or coalesce(participant_limit, 0) = 0
+                or coalesce(confirmed_requests, 0) + ? <= participant_limit)
+            """;
+    // Лимит участников мог измениться при редактировании события
+    private static final String REFRESH_SLOTS_SQL = """
+            update events
+            set available_slots = case
+                                      when participant_limit > 0
+                                          then participant_limit - coalesce(confirmed_requests, 0) end
+            where id = ?
+              and available_slots is distinct from case
+                                                       when participant_limit > 0
+                                                           then participant_limit - coalesce(confirmed_requests, 0) end
+            """;
+    private static final String SYNC_SLOTS_SQL = """
+            update event_search s
+            set available_slots = e.available_slots
+            from events e
+            where e.id = ? and s.event_id = e.id
+            """;
+    private static final String UPDATE_EVENT_RATING_SQL = "update events set rating = ? where id = ?";
+    private static final String UPDATE_SEARCH_RATING_SQL = "update event_search set rating = ? where event_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void syncSearchProjection(Event event) {
+        jdbcTemplate.update(REFRESH_SLOTS_SQL, event.getId());
+        if (event.getState() != EventState.PUBLISHED) {
+            jdbcTemplate.update(DELETE_SEARCH_SQL, event.getId());
+            return;
+        }
+        jdbcTemplate.update(UPSERT_SEARCH_SQL,
+                event.getId(),
+                event.getCategory() == null ? null : event.getCategory().getId(),
+                event.getPaid(),
+                event.getParticipantLimit(),
+                event.getEventDate() == null ? null : Timestamp.valueOf(event.getEventDate()),
+                ratingOf(event.getRating()),
+                searchText(event.getAnnotation(), event.getDescription()));
+    }
+
+    @Override
+    public boolean addConfirmedRequests(Long eventId, int delta) {
+        if (jdbcTemplate.update(ADD_CONFIRMED_SQL, delta, delta, eventId, delta, delta, delta) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(SYNC_SLOTS_SQL, eventId);
+        return true;
+    }
+
+    @Override
+    public void updateRating(Long eventId, Double rating) {
+        jdbcTemplate.update(UPDATE_EVENT_RATING_SQL, rating, eventId);
+        jdbcTemplate.update(UPDATE_SEARCH_RATING_SQL, ratingOf(rating), eventId);
+    }
+
+    // Составные индексы (event_date, event_id) и (rating, event_id) позволяют начинать чтение сразу
+    // с позиции курсора, поэтому глубокая страница стоит столько же, сколько первая
+    @Override
+    public List<Long> searchPublishedEventIds(PublicGetEventRequestDto params,
+                                              LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        String text = params.getText();
+        List<Long> categories = params.getCategories();
+        StringBuilder sql = new StringBuilder("select event_id from event_search where event_date >= ? and event_date <= ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(rangeStart));
+        args.add(Timestamp.valueOf(rangeEnd));
+        if (text != null && !text.isBlank()) {
+            sql.append(" and (search_vector @@ plainto_tsquery('simple', ?) or search_text like ? escape '\\')");
+            args.add(text);
+            args.add("%" + escapeLike(text.toLowerCase()) + "%");
+        }
+        if (categories != null && !categories.isEmpty()) {
+            sql.append(" and category_id = any(?::int8[])");
+            args.add(categories.toArray(Long[]::new));
+        }
+        if (params.getPaid() != null) {
+            sql.append(" and paid = ?");
+            args.add(params.getPaid());
+        }
+        if (Boolean.TRUE.equals(params.getOnlyAvailable())) {
+            sql.append(" and (available_slots is null or available_slots > 0)");
+        }
+        EventSort sort = params.getSort();
+        Long afterId = params.getAfterId();
+        if (afterId != null) {
+            if (sort == EventSort.EVENT_DATE) {
+                sql.append(" and (event_date, event_id) > (?, ?)");
+                args.add(Timestamp.valueOf(params.getAfterEventDate()));
+            } else if (sort == EventSort.VIEWS) {
+                sql.append(" and (rating, event_id) < (?, ?)");
+                args.add(params.getAfterRating());
+            } else {
+                sql.append(" and event_id > ?");
+            }
+            args.add(afterId);
+        }
+        if (sort == EventSort.EVENT_DATE) {
+            sql.append(" order by event_date, event_id");
+        } else if (sort == EventSort.VIEWS) {
+            sql.append(" order by rating desc, event_id desc");
+        } else {
+            sql.append(" order by event_id");
+        }
+        sql.append(" limit ?");
+        args.add(params.getSize());
+        if (afterId == null) {
+            sql.append(" offset ?");
+            args.add((long) (params.getFrom() / params.getSize()) * params.getSize());
+        }
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    private static double ratingOf(Double rating) {
+        return rating == null ? 0.0 : rating;
+    }
+
+    private static String searchText(String annotation, String description) {
+        return (annotation == null ? "" : annotation) + " " + (description == null ? "" : description);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
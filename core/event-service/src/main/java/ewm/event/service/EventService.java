@@ -28,7 +28,7 @@ public interface EventService {
 
     EventRequestStatusUpdateResult changeStatusEventRequests(Long userId, Long eventId, EventRequestStatusUpdateRequest request);
 
-    EventDto updateConfirmRequests(EventDto eventDto);
+    void changeConfirmedRequests(Long eventId, int delta);
 
     List<RecommendationDto> getRecommendations(Long limit, Long userId);
 
@@ -2,13 +2,14 @@ package ewm.event.service;
 
 import ewm.category.model.Category;
 import ewm.category.repository.CategoryRepository;
-import ewm.client.CollectorClient;
+import ewm.client.AsyncCollectorClient;
 import ewm.client.RecommendationsClient;
 import ewm.client.RequestOperations;
 import ewm.client.UserClient;
 import ewm.dto.event.*;
 import ewm.dto.request.RequestDto;
 import ewm.dto.user.UserDto;
+import ewm.enums.EventSort;
 import ewm.enums.EventState;
 import ewm.enums.RequestStatus;
 import ewm.enums.StateAction;
@@ -29,7 +30,10 @@ import ru.practicum.ewm.grpc.stats.recomendations.RecommendedEventProto;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,17 +50,19 @@ public class EventServiceImpl implements EventService {
     private final CategoryRepository categoryRepository;
     private final UserClient userClient;
     private final RequestOperations requestClient;
-    private final CollectorClient collectorClient;
+    private final AsyncCollectorClient collectorClient;
     private final RecommendationsClient recommendationsClient;
+    private final InitiatorLoader initiatorLoader;
 
     // Методы для пользователей
     @Override
     public List<EventDto> getEvents(Long userId, Integer from, Integer size) {
         log.info("Получение событий для пользователя userId: {}, from: {}, size: {}", userId, from, size);
-        userClient.getUserById(userId);
+        // все события страницы принадлежат одному инициатору — он же проверяется на существование
+        UserDto initiator = userClient.getUserById(userId);
         Pageable pageable = PageRequest.of(from, size);
         List<EventDto> result = repository.findByInitiatorId(userId, pageable).stream()
-                .map(this::eventToDto)
+                .map(event -> EventMapper.mapEventToEventDto(event, initiator))
                 .toList();
         log.info("Успешно получено {} событий для пользователя userId: {}", result.size(), userId);
         return result;
@@ -91,7 +97,8 @@ public class EventServiceImpl implements EventService {
         event.setState(EventState.PENDING);
 
         Event newEvent = repository.save(event);
-        UpdatedEventDto result = EventMapper.mapEventToUpdatedEventDto(newEvent, userClient.getUserById(newEvent.getInitiatorId()));
+        repository.syncSearchProjection(newEvent);
+        UpdatedEventDto result = EventMapper.mapEventToUpdatedEventDto(newEvent, user);
         log.info("Событие успешно создано с id: {} для пользователя userId: {}", newEvent.getId(), userId);
         return result;
     }
@@ -109,6 +116,7 @@ public class EventServiceImpl implements EventService {
 
         updateEventFields(eventDto, event);
         Event saved = repository.save(event);
+        repository.syncSearchProjection(saved);
         UpdatedEventDto result = EventMapper.mapEventToUpdatedEventDto(saved, userClient.getUserById(event.getInitiatorId()));
         log.info("Событие eventId: {} успешно обновлено для пользователя userId: {}", eventId, userId);
         return result;
@@ -122,18 +130,12 @@ public class EventServiceImpl implements EventService {
         LocalDateTime end = requestParams.getRangeEnd() != null ? requestParams.getRangeEnd() : LocalDateTime.now().plusYears(10);
 
         validateDateRange(start, end);
+        validateCursor(requestParams);
 
-        List<Event> events = repository.findEventsPublic(
-                requestParams.getText(),
-                requestParams.getCategories(),
-                requestParams.getPaid(),
-                start,
-                end,
-                EventState.PUBLISHED,
-                requestParams.getOnlyAvailable(),
-                PageRequest.of(requestParams.getFrom() / requestParams.getSize(), requestParams.getSize())
-        );
-        List<UpdatedEventDto> result = EventMapper.mapToUpdatedEventDto(events);
+        // поиск идёт по проекции event_search, где лежат только опубликованные события
+        List<Long> ids = repository.searchPublishedEventIds(requestParams, start, end);
+        List<Event> events = findAllInOrder(ids);
+        List<UpdatedEventDto> result = EventMapper.mapToUpdatedEventDto(events, initiatorLoader.getInitiators(events));
         log.info("Успешно получено {} публичных событий", result.size());
         return result;
     }
@@ -147,7 +149,6 @@ public class EventServiceImpl implements EventService {
         collectUserActionAndUpdateRating(id, userId, event);
 
         UserDto initiator = userClient.getUserById(event.getInitiatorId());
-        collectUserActionAndUpdateRating(id, userId, event);
         UpdatedEventDto result = EventMapper.mapEventToUpdatedEventDto(event, initiator);
         log.info("Публичное событие id: {} успешно получено", id);
         return result;
@@ -207,7 +208,7 @@ public class EventServiceImpl implements EventService {
                 requestParams.getRangeEnd(),
                 PageRequest.of(requestParams.getFrom() / requestParams.getSize(), requestParams.getSize())
         );
-        List<UpdatedEventDto> result = EventMapper.mapToUpdatedEventDto(events);
+        List<UpdatedEventDto> result = EventMapper.mapToUpdatedEventDto(events, initiatorLoader.getInitiators(events));
         log.info("Администратор успешно получил {} событий", result.size());
         return result;
     }
@@ -219,6 +220,7 @@ public class EventServiceImpl implements EventService {
         checkEventForUpdate(event, eventDto.getStateAction());
 
         Event updatedEvent = repository.save(prepareEventForUpdate(event, eventDto));
+        repository.syncSearchProjection(updatedEvent);
         UserDto initiator = userClient.getUserById(event.getInitiatorId());
         UpdatedEventDto result = EventMapper.mapEventToUpdatedEventDto(updatedEvent, initiator);
         log.info("Событие eventId: {} успешно обновлено администратором", eventId);
@@ -236,14 +238,16 @@ public class EventServiceImpl implements EventService {
         return eventDto;
     }
 
-    public EventDto updateConfirmRequests(EventDto eventDto) {
-        log.info("Обновление подтверждения запросов для события: {}", eventDto);
-        Event event = EventMapper.mapToEvent(eventDto);
-        UserDto user = userClient.getUserById(event.getInitiatorId());
-        Event savedEvent = repository.save(event);
-        EventDto result = EventMapper.mapEventToEventDto(savedEvent, user);
-        log.info("Подтверждение запросов для события id: {} успешно обновлено", savedEvent.getId());
-        return result;
+    @Override
+    public void changeConfirmedRequests(Long eventId, int delta) {
+        log.info("Изменение числа подтверждённых заявок события eventId: {} на {}", eventId, delta);
+        getEvent(eventId);
+        if (!repository.addConfirmedRequests(eventId, delta)) {
+            log.warn("Нельзя изменить число подтверждённых заявок события id: {} на {}", eventId, delta);
+            throw new ConflictException(delta > 0
+                    ? "Превышен лимит заявок"
+                    : "Число подтверждённых заявок не может стать отрицательным");
+        }
     }
 
     @Override
@@ -273,11 +277,16 @@ public class EventServiceImpl implements EventService {
         validateLikeConditions(eventOptional, eventId, userId);
 
         try {
-            collectorClient.collectUserAction(UserActionProto.newBuilder()
+            boolean accepted = collectorClient.collectUserAction(UserActionProto.newBuilder()
                     .setEventId(eventId)
                     .setUserId(userId)
                     .build());
-            log.info("Лайк для события eventId: {} успешно сохранён", eventId);
+            if (accepted) {
+                log.info("Лайк для события eventId: {} успешно сохранён", eventId);
+            } else {
+                log.warn("Лайк для события eventId: {}, пользователь: {} отброшен: очередь отправки в коллектор переполнена",
+                        eventId, userId);
+            }
         } catch (Exception e) {
             log.error("Ошибка при сохранении лайка для события eventId: {}: {}", eventId, e.getMessage(), e);
         }
@@ -289,6 +298,19 @@ public class EventServiceImpl implements EventService {
         return EventMapper.mapEventToEventDto(event, userClient.getUserById(event.getInitiatorId()));
     }
 
+    // События по идентификаторам в порядке ids
+    private List<Event> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Event> byId = repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     private Event getEvent(Long eventId) {
         log.debug("Поиск события id: {}", eventId);
         return repository.findById(eventId)
@@ -312,6 +334,19 @@ public class EventServiceImpl implements EventService {
         }
     }
 
+    // Для сортировки курсор должен содержать значение её поля у последнего события предыдущей страницы
+    private void validateCursor(PublicGetEventRequestDto requestParams) {
+        if (requestParams.getAfterId() == null) {
+            return;
+        }
+        if (requestParams.getSort() == EventSort.EVENT_DATE && requestParams.getAfterEventDate() == null) {
+            throw new ValidationException("Для сортировки EVENT_DATE вместе с afterId нужен afterEventDate");
+        }
+        if (requestParams.getSort() == EventSort.VIEWS && requestParams.getAfterRating() == null) {
+            throw new ValidationException("Для сортировки VIEWS вместе с afterId нужен afterRating");
+        }
+    }
+
     private void validatePublishedState(Event event) {
         if (event.getState() != EventState.PUBLISHED) {
             log.warn("Событие id: {} не опубликовано, текущий статус: {}", event.getId(), event.getState());
@@ -326,11 +361,14 @@ public class EventServiceImpl implements EventService {
                 .setUserId(userId)
                 .build();
         try {
-            collectorClient.collectUserAction(userActionProto);
+            if (!collectorClient.collectUserAction(userActionProto)) {
+                log.warn("Просмотр события id: {} пользователем {} отброшен: очередь отправки в коллектор переполнена",
+                        eventId, userId);
+            }
             Stream<RecommendedEventProto> rating = recommendationsClient.getInteractionsCount(List.of(eventId));
             rating.findFirst().ifPresent(recommendedEvent -> {
                 event.setRating(recommendedEvent.getScore());
-                repository.save(event);
+                repository.updateRating(eventId, recommendedEvent.getScore());
                 log.debug("Рейтинг события id: {} обновлён: {}", eventId, recommendedEvent.getScore());
             });
         } catch (Exception e) {
@@ -351,21 +389,37 @@ public class EventServiceImpl implements EventService {
 
     private void handleRequestConfirmation(Event event, List<RequestDto> requests, EventRequestStatusUpdateResult response) {
         log.debug("Обработка подтверждения запросов для события id: {}, количество: {}", event.getId(), requests.size());
-        if (requests.size() + event.getConfirmedRequests() > event.getParticipantLimit()) {
-            log.warn("Превышен лимит участников для события id: {}, текущий: {}, новый: {}",
-                    event.getId(), event.getConfirmedRequests(), requests.size());
+        // места резервируются атомарно до подтверждения заявок и возвращаются, если подтвердить не удалось
+        if (!repository.addConfirmedRequests(event.getId(), requests.size())) {
+            log.warn("Превышен лимит участников для события id: {} при резервировании {} мест",
+                    event.getId(), requests.size());
             throw new ConflictException("Превышен лимит заявок");
         }
         List<RequestDto> confirmedRequests = requests.stream()
                 .peek(req -> req.setStatus(RequestStatus.CONFIRMED))
                 .collect(Collectors.toList());
-        requestClient.updateAllRequest(confirmedRequests);
-        event.setConfirmedRequests(event.getConfirmedRequests() + requests.size());
-        repository.save(event);
+        try {
+            requestClient.updateAllRequest(confirmedRequests);
+        } catch (RuntimeException e) {
+            releaseReservedSlots(event.getId(), requests.size(), e);
+            throw e;
+        }
         response.setConfirmedRequests(confirmedRequests);
         log.debug("Успешно подтверждено {} запросов для события id: {}", confirmedRequests.size(), event.getId());
     }
 
+    // Компенсация резерва мест; если она не удалась, места остаются занятыми и это нужно видеть в логах
+    private void releaseReservedSlots(Long eventId, int count, RuntimeException cause) {
+        try {
+            if (!repository.addConfirmedRequests(eventId, -count)) {
+                log.error("Не удалось вернуть {} зарезервированных мест события id: {}", count, eventId);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка при возврате {} зарезервированных мест события id: {}", count, eventId, e);
+            cause.addSuppressed(e);
+        }
+    }
+
     private void checkEventForUpdate(Event event, StateAction action) {
         log.debug("Проверка события id: {} перед обновлением, действие: {}", event.getId(), action);
         checkEventDate(event.getEventDate());
@@ -0,0 +1,35 @@
+package ewm.event.service;
+
+import ewm.client.UserClient;
+import ewm.dto.user.UserDto;
+import ewm.event.model.Event;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Загрузка инициаторов для страницы событий одним запросом к user-service вместо запроса на каждое событие
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InitiatorLoader {
+    private final UserClient userClient;
+
+    public Map<Long, UserDto> getInitiators(Collection<Event> events) {
+        List<Long> ids = events.stream()
+                .map(Event::getInitiatorId)
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        log.debug("Загрузка {} инициаторов для {} событий", ids.size(), events.size());
+        return userClient.getUsersByIds(ids).stream()
+                .collect(Collectors.toMap(UserDto::getId, Function.identity()));
+    }
+}
@@ -12,6 +12,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 
 public class EventMapper {
@@ -133,6 +134,24 @@ public class EventMapper {
         return dto;
     }
 
+    // Инициаторы берутся из initiators по id; если пользователя нет, в DTO остаётся только id
+    public static List<UpdatedEventDto> mapToUpdatedEventDto(Iterable<Event> events, Map<Long, UserDto> initiators) {
+        List<UpdatedEventDto> dtos = new ArrayList<>();
+        for (Event event : events) {
+            dtos.add(mapEventToUpdatedEventDto(event, initiatorOf(event, initiators)));
+        }
+        return dtos;
+    }
+
+    private static UserDto initiatorOf(Event event, Map<Long, UserDto> initiators) {
+        UserDto initiator = initiators.get(event.getInitiatorId());
+        if (initiator == null) {
+            initiator = new UserDto();
+            initiator.setId(event.getInitiatorId());
+        }
+        return initiator;
+    }
+
     public static List<UpdatedEventDto> mapToUpdatedEventDto(Iterable<Event> events) {
         List<UpdatedEventDto> dtos = new ArrayList<>();
         for (Event event : events) {
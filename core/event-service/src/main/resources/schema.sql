@@ -22,6 +22,7 @@ CREATE TABLE if not exists events
     initiator_id       int8                                                                                                                     NULL,
     published_on       timestamp(6)                                                                                                             NULL,
     rating             float8                                                                                                                   NULL,
+    available_slots    int4                                                                                                                     NULL,
     annotation         varchar(4000)                                                                                                            NULL,
     description        varchar(7000)                                                                                                            NULL,
     title              varchar(255)                                                                                                             NULL,
@@ -30,6 +31,14 @@ CREATE TABLE if not exists events
     CONSTRAINT fko6mla8j1p5bokt4dxrlmgwc28 FOREIGN KEY (category_id) REFERENCES categories (id)
 );
 
+-- Свободные места события (participant_limit - confirmed_requests), null — без ограничения участников
+ALTER TABLE events ADD COLUMN if not exists available_slots int4 NULL;
+UPDATE events
+SET available_slots = participant_limit - coalesce(confirmed_requests, 0)
+WHERE participant_limit > 0
+  AND available_slots IS NULL;
+CREATE INDEX if not exists events_available_slots_idx ON events (available_slots);
+
 CREATE TABLE if not exists compilations
 (
     pinned bool                                                                                                                     NULL,
@@ -44,4 +53,56 @@ CREATE TABLE if not exists compilations_events
     id       int8 NOT NULL,
     CONSTRAINT fk659jbpv3f0lpfl22817evij91 FOREIGN KEY (event_id) REFERENCES events (id),
     CONSTRAINT fko0b564ve7s4586ljcjvhoqg3h FOREIGN KEY (id) REFERENCES compilations (id)
-);
\ No newline at end of file
+);
+
+CREATE EXTENSION if not exists pg_trgm;
+
+-- Поисковая проекция опубликованных событий для публичного поиска /events
+CREATE TABLE if not exists event_search
+(
+    event_id          int8         NOT NULL,
+    category_id       int8         NULL,
+    paid              bool         NULL,
+    participant_limit int4         NULL,
+    available_slots   int4         NULL,
+    event_date        timestamp(6) NULL,
+    rating            float8       NOT NULL DEFAULT 0,
+    search_text       text         NOT NULL,
+    search_vector     tsvector     NOT NULL,
+    CONSTRAINT event_search_pkey PRIMARY KEY (event_id),
+    CONSTRAINT event_search_event_fkey FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE
+);
+
+-- Для баз, где проекция создана до появления сортировки по рейтингу
+ALTER TABLE event_search ADD COLUMN if not exists rating float8 NOT NULL DEFAULT 0;
+ALTER TABLE event_search ADD COLUMN if not exists available_slots int4 NULL;
+
+CREATE INDEX if not exists event_search_vector_idx ON event_search USING gin (search_vector);
+CREATE INDEX if not exists event_search_text_trgm_idx ON event_search USING gin (search_text gin_trgm_ops);
+-- Составные индексы под сортировки публичного поиска и keyset-пагинацию по ним
+CREATE INDEX if not exists event_search_event_date_id_idx ON event_search (event_date, event_id);
+CREATE INDEX if not exists event_search_rating_id_idx ON event_search (rating, event_id);
+CREATE INDEX if not exists event_search_available_slots_idx ON event_search (available_slots);
+
+-- Заполнение проекции для опубликованных событий, появившихся до её создания (state = 1 — PUBLISHED)
+INSERT INTO event_search (event_id, category_id, paid, participant_limit, available_slots, event_date, rating,
+                          search_text, search_vector)
+SELECT id,
+       category_id,
+       paid,
+       participant_limit,
+       available_slots,
+       event_date,
+       coalesce(rating, 0),
+       lower(coalesce(annotation, '') || ' ' || coalesce(description, '')),
+       to_tsvector('simple', lower(coalesce(annotation, '') || ' ' || coalesce(description, '')))
+FROM events
+WHERE state = 1
+ON CONFLICT (event_id) DO NOTHING;
+
+-- Перенос свободных мест в проекцию, созданную до появления available_slots
+UPDATE event_search s
+SET available_slots = e.available_slots
+FROM events e
+WHERE s.event_id = e.id
+  AND s.available_slots IS DISTINCT FROM e.available_slots;
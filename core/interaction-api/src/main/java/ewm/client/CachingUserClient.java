@@ -0,0 +1,168 @@
+package ewm.client;
+
+import ewm.dto.user.UserDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Локальный кеш пользователей поверх Feign-клиента user-service, ограниченный по размеру и времени жизни.
+// Одновременные промахи по одному id объединяются в один HTTP-запрос, остальные потоки ждут его результата.
+// Ошибки (в том числе «пользователь не найден») не кешируются. Удаление пользователя становится видно
+// потребителям не позже чем через ttl-ms.
+// Бин регистрируется только в сервисах с user-client.cache.enabled=true (см. UserClientCacheConfig).
+// Записи хранятся в очереди в порядке истечения (ttl у всех одинаковый): просроченные и вытесняемые
+// записи снимаются с её головы, без обхода всего кеша.
+public class CachingUserClient implements UserClient {
+    private final UserClient delegate;
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<UserDto>> loading = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Queue<Expiry> expiryOrder = new ConcurrentLinkedQueue<>();
+
+    public CachingUserClient(UserClient delegate, MeterRegistry registry, int maxSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.hits = registry.counter("ewm.user.cache.requests", "result", "hit");
+        this.misses = registry.counter("ewm.user.cache.requests", "result", "miss");
+        this.coalesced = registry.counter("ewm.user.cache.requests", "result", "coalesced");
+        registry.gaugeMapSize("ewm.user.cache.size", List.of(), cache);
+    }
+
+    @Override
+    public UserDto getUserById(Long userId) {
+        UserDto cached = getCached(userId);
+        if (cached != null) {
+            hits.increment();
+            return copy(cached);
+        }
+        CompletableFuture<UserDto> own = new CompletableFuture<>();
+        CompletableFuture<UserDto> inFlight = loading.putIfAbsent(userId, own);
+        if (inFlight != null) {
+            coalesced.increment();
+            return copy(await(inFlight));
+        }
+        misses.increment();
+        try {
+            UserDto user = delegate.getUserById(userId);
+            put(user);
+            own.complete(user);
+            return copy(user);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(userId, own);
+        }
+    }
+
+    // Из кеша берутся найденные пользователи, остальные запрашиваются одним пакетным запросом;
+    // закешированные идут в начале результата, поэтому порядок не совпадает с порядком ids
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        List<UserDto> result = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            UserDto cached = getCached(id);
+            if (cached != null) {
+                result.add(copy(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        misses.increment(missing.size());
+        for (UserDto user : delegate.getUsersByIds(missing)) {
+            put(user);
+            result.add(copy(user));
+        }
+        return result;
+    }
+
+    private UserDto getCached(Long userId) {
+        Entry entry = cache.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            cache.remove(userId, entry);
+            return null;
+        }
+        return entry.user;
+    }
+
+    private void put(UserDto user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        removeExpired(now);
+        evict();
+        Entry entry = new Entry(copy(user), now + ttlMillis);
+        cache.put(user.getId(), entry);
+        expiryOrder.add(new Expiry(user.getId(), entry));
+    }
+
+    // Из головы очереди снимаются только просроченные записи, поэтому вставка стоит O(1) в среднем
+    private void removeExpired(long now) {
+        Expiry head;
+        while ((head = expiryOrder.peek()) != null && head.entry.expiresAt <= now) {
+            if (expiryOrder.remove(head)) {
+                cache.remove(head.userId, head.entry);
+            }
+        }
+    }
+
+    // При заполнении вытесняется запись, которая истекла бы раньше остальных
+    private void evict() {
+        Expiry head;
+        while (cache.size() >= maxSize && (head = expiryOrder.poll()) != null) {
+            cache.remove(head.userId, head.entry);
+        }
+    }
+
+    private static UserDto await(CompletableFuture<UserDto> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // UserDto изменяемый, поэтому наружу отдаётся копия, а не закешированный экземпляр
+    private static UserDto copy(UserDto user) {
+        return user == null ? null : user.toBuilder().build();
+    }
+
+    private record Expiry(Long userId, Entry entry) {
+    }
+
+    // equals по ссылке: запись в очереди относится к конкретной вставке, а не к равной по значению
+    private static final class Entry {
+        private final UserDto user;
+        private final long expiresAt;
+
+        private Entry(UserDto user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -5,15 +5,16 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @FeignClient(name = "event-service")
 public interface EventClient {
     @GetMapping("/event/{eventId}")
     EventDto getEventById(@PathVariable Long eventId);
 
-    @PostMapping("/event/{eventId}")
-    EventDto updateConfirmRequests(@PathVariable Long eventId, @RequestBody EventDto event);
+    // Атомарно меняет число подтверждённых заявок на delta; при превышении лимита участников — 409
+    @PostMapping("/event/{eventId}/confirmed-requests")
+    void changeConfirmedRequests(@PathVariable Long eventId, @RequestParam int delta);
 
     @GetMapping("/event-subscription/{userId}")
     EventDto getEventByInitiatorId(@PathVariable Long userId);
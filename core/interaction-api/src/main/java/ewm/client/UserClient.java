@@ -4,9 +4,20 @@ import ewm.dto.user.UserDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
-@FeignClient(name = "user-service")
+import java.util.List;
+
+// Не основной бин: при user-client.cache.enabled=true потребители получают кеширующую обёртку CachingUserClient
+@FeignClient(name = "user-service", primary = false)
 public interface UserClient {
     @GetMapping("user/{userId}")
     UserDto getUserById(@PathVariable Long userId);
+
+    // Пользователи по списку идентификаторов одним запросом; отсутствующие id пропускаются,
+    // порядок результата не гарантируется — вызывающий сопоставляет пользователей по id.
+    // Список передаётся в теле, чтобы длинная выборка не упиралась в ограничение длины URL
+    @PostMapping("user/batch")
+    List<UserDto> getUsersByIds(@RequestBody List<Long> ids);
 }
@@ -0,0 +1,28 @@
+package ewm.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// Кеш пользователей подключается явно в сервисах-потребителях; в остальных (например, в самом
+// user-service) UserClient остаётся Feign-клиентом без обёртки
+@Configuration
+@ConditionalOnProperty(prefix = "user-client.cache", name = "enabled", havingValue = "true")
+public class UserClientCacheConfig {
+
+    @Bean
+    @Primary
+    public CachingUserClient cachingUserClient(@Qualifier("ewm.client.UserClient") UserClient delegate,
+                                               ObjectProvider<MeterRegistry> meterRegistry,
+                                               @Value("${user-client.cache.max-size:10000}") int maxSize,
+                                               @Value("${user-client.cache.ttl-ms:60000}") long ttlMillis) {
+        return new CachingUserClient(delegate, meterRegistry.getIfAvailable(SimpleMeterRegistry::new),
+                maxSize, ttlMillis);
+    }
+}
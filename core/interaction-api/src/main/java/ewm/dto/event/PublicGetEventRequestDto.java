@@ -34,6 +34,15 @@ public class PublicGetEventRequestDto {
 
     private EventSort sort;
 
+    // Курсор keyset-пагинации — поля последнего события предыдущей страницы.
+    // Если задан afterId, from не используется; для EVENT_DATE нужен afterEventDate, для VIEWS — afterRating
+    private Long afterId;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime afterEventDate;
+
+    private Double afterRating;
+
     @PositiveOrZero
     @Builder.Default
     private int from = 0;
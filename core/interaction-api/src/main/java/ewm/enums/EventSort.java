@@ -2,5 +2,8 @@ package ewm.enums;
 
 public enum EventSort {
     EVENT_DATE,
+    // Счётчика просмотров в событиях нет: сортировка идёт по рейтингу — взвешенной сумме действий
+    // пользователей из сервиса рекомендаций (просмотр 0.4, регистрация 0.8, лайк 1.0), по убыванию.
+    // Название сохранено ради совместимости API
     VIEWS
 }
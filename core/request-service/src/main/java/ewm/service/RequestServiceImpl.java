@@ -60,9 +60,8 @@ public class RequestServiceImpl implements RequestService {
                 .build();
         request = repository.save(request);
         if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
-            event.setConfirmedRequests(event.getConfirmedRequests() + 1);
-            eventClient.updateConfirmRequests(eventId, event);
-            log.debug("Подтверждён запрос для события eventId: {}, новый лимит: {}", eventId, event.getConfirmedRequests());
+            eventClient.changeConfirmedRequests(eventId, 1);
+            log.debug("Подтверждён запрос для события eventId: {}", eventId);
         }
         RequestDto result = ReqMapper.mapToRequestDto(request);
         log.info("Запрос успешно создан с id: {} для userId: {} и eventId: {}", result.getId(), userId, eventId);
@@ -79,11 +78,13 @@ public class RequestServiceImpl implements RequestService {
             log.warn("Пользователь userId: {} не может отменить запрос requestId: {} другого пользователя", userId, requestId);
             throw new ConflictException("Другой пользователь не может отменить запрос");
         }
+        // место освобождается только при отмене уже подтверждённой заявки
+        boolean wasConfirmed = request.getStatus() == RequestStatus.CONFIRMED;
         request.setStatus(RequestStatus.CANCELED);
         repository.save(request);
-        EventDto event = eventClient.getEventById(request.getEventId());
-        event.setConfirmedRequests(event.getConfirmedRequests() - 1);
-        eventClient.updateConfirmRequests(event.getId(), event);
+        if (wasConfirmed) {
+            eventClient.changeConfirmedRequests(request.getEventId(), -1);
+        }
         RequestDto result = ReqMapper.mapToRequestDto(request);
         log.info("Запрос requestId: {} успешно отменён для userId: {}", requestId, userId);
         return result;
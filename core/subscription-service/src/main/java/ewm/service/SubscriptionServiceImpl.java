@@ -28,7 +28,6 @@ import java.util.Optional;
 public class SubscriptionServiceImpl implements SubscriptionService {
     private final SubscriberRepository subscriberRepository;
     private final BlackListRepository blackListRepository;
-    @Qualifier("ewm.client.UserClient")
     private final UserClient userClient;
     @Qualifier("ewm.client.EventClient")
     private final EventClient eventClient;
@@ -8,6 +8,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @Validated
 @Slf4j
@@ -22,4 +24,12 @@ public class UserServiceController implements UserClient {
         log.info("Пользователь с userId: {} успешно получен", userId);
         return result;
     }
+
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        log.info("Получение пользователей по списку id, количество: {}", ids.size());
+        List<UserDto> result = service.getUsersByIds(ids);
+        log.info("Получено {} пользователей по списку id", result.size());
+        return result;
+    }
 }
\ No newline at end of file
@@ -13,4 +13,6 @@ public interface UserService {
     void deleteUser(Long userId);
 
     UserDto getUserById(Long userId);
+
+    List<UserDto> getUsersByIds(List<Long> ids);
 }
@@ -75,6 +75,15 @@ public class UserServiceImpl implements UserService {
         return result;
     }
 
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        log.debug("Получение пользователей по списку id: {}", ids);
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return UserMapper.mapToUserDto(repository.findAllById(ids.stream().distinct().toList()));
+    }
+
     private User getUserFromRepo(Long userId) {
         log.debug("Поиск пользователя с userId: {}", userId);
         Optional<User> user = repository.findById(userId);
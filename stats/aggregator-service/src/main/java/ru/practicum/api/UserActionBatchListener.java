@@ -0,0 +1,55 @@
+package ru.practicum.api;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.service.AggregatorService;
+import ru.practicum.snapshot.SnapshotService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Пакетный режим слушателя: весь poll обрабатывается за один вызов,
+// сходства пар объединяются в пределах пачки
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aggregator.listener.batch", havingValue = "true")
+public class UserActionBatchListener implements ConsumerSeekAware {
+    private final AggregatorService service;
+    private final SnapshotService snapshotService;
+
+    @KafkaListener(topics = "${kafka.topic}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "true")
+    public void listen(List<ConsumerRecord<Long, UserActionAvro>> records) {
+        log.info("Получена пачка из {} сообщений", records.size());
+        List<UserActionAvro> actions = new ArrayList<>(records.size());
+        for (ConsumerRecord<Long, UserActionAvro> record : records) {
+            if (record.value() != null) {
+                actions.add(record.value());
+            }
+        }
+        snapshotService.beginProcessing();
+        try {
+            service.calculateWeights(actions);
+            for (ConsumerRecord<Long, UserActionAvro> record : records) {
+                snapshotService.markConsumed(record.topic(), record.partition(), record.offset());
+            }
+        } finally {
+            snapshotService.endProcessing();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        snapshotService.seekToRestoredOffsets(assignments, callback);
+    }
+}
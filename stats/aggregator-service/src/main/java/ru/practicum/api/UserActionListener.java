@@ -2,22 +2,46 @@ package ru.practicum.api;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.service.AggregatorService;
+import ru.practicum.snapshot.SnapshotService;
+
+import java.util.Map;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class UserActionListener {
+@ConditionalOnProperty(name = "aggregator.listener.batch", havingValue = "false", matchIfMissing = true)
+public class UserActionListener implements ConsumerSeekAware {
     private final AggregatorService service;
+    private final SnapshotService snapshotService;
 
     @KafkaListener(topics = "${kafka.topic}",
             containerFactory = "kafkaListenerContainerFactory",
             autoStartup = "true")
-    public void listen(UserActionAvro message) {
+    public void listen(UserActionAvro message,
+                       @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                       @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                       @Header(KafkaHeaders.OFFSET) long offset) {
         log.info("Получено сообщение: {}", message.toString());
-        service.calculateWeight(message);
+        snapshotService.beginProcessing();
+        try {
+            service.calculateWeight(message);
+            snapshotService.markConsumed(topic, partition, offset);
+        } finally {
+            snapshotService.endProcessing();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        snapshotService.seekToRestoredOffsets(assignments, callback);
     }
 }
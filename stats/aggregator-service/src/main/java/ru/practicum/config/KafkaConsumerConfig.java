@@ -1,7 +1,8 @@
 package ru.practicum.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.VoidDeserializer;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.common.serialization.LongDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,7 +10,9 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.serialize.AvroDeserializer;
 import ru.practicum.serialize.UserActionDeserializer;
 
 import java.util.HashMap;
@@ -25,19 +28,40 @@ public class KafkaConsumerConfig {
     private String clientId;
     @Value("${kafka.group-id}")
     private String groupId;
+    // Число потоков-слушателей; каждый владеет своим набором партиций.
+    // Агрегатор масштабируется только этим параметром: экземпляр должен владеть всеми партициями топика
+    @Value("${aggregator.listener.concurrency:1}")
+    private int concurrency;
+    // Переиспользование экземпляров записей между poll; состояние хранит только примитивы
+    @Value("${aggregator.listener.reuse-records:false}")
+    private boolean reuseRecords;
 
 
     @Bean
-    public ConsumerFactory<String, UserActionAvro> consumerFactory() {
+    public ConsumerFactory<Long, UserActionAvro> consumerFactory() {
         Map<String, Object> props = createConsumerConfig();
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, UserActionAvro> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, UserActionAvro> factory =
+    public ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        return factory;
+    }
+
+    // Пакетный режим: слушатель получает весь poll (до MAX_POLL_RECORDS_CONFIG записей),
+    // оффсеты фиксируются один раз после обработки пачки
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
         return factory;
     }
 
@@ -46,12 +70,15 @@ public class KafkaConsumerConfig {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, VoidDeserializer.class);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class); // Ключ — id пользователя
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, UserActionDeserializer.class);
         // Дополнительные настройки для надёжности
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"); // Начинать с начала, если нет оффсета
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500); // Ограничение записей за один poll
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false); // Ручное управление коммитами
+        props.put(AvroDeserializer.REUSE_RECORDS_CONFIG, reuseRecords);
+        // Партиции по возможности остаются за прежним владельцем при ребалансировке
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
         return props;
     }
 }
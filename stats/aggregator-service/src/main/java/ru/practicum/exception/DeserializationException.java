@@ -1,7 +0,0 @@
-package ru.practicum.exception;
-
-public class DeserializationException extends RuntimeException {
-    public DeserializationException(String message, Throwable cause) {
-        super(message, cause);
-    }
-}
@@ -1,8 +1,9 @@
 package ru.practicum.serialize;
 
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.serialize.AvroDeserializer;
 
-public class UserActionDeserializer extends BaseAvroDeserializer<UserActionAvro> {
+public class UserActionDeserializer extends AvroDeserializer<UserActionAvro> {
     public UserActionDeserializer() {
         super(UserActionAvro.getClassSchema());
     }
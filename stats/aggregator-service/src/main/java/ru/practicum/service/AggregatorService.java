@@ -1,5 +1,7 @@
 package ru.practicum.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,12 +9,13 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.state.LongDoubleMap;
+import ru.practicum.state.PairScoreBuffer;
+import ru.practicum.state.SimilarityStateStore;
+import ru.practicum.state.TimeDecay;
 
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.List;
 import java.util.logging.Logger;
 
 @Service
@@ -23,10 +26,16 @@ public class AggregatorService {
     private static final double REGISTER_WEIGHT = 0.8;
     private static final double VIEW_WEIGHT = 0.4;
     private static final Logger LOGGER = Logger.getLogger(AggregatorService.class.getName());
-    // Коллекции с потокобезопасностью
-    private final Map<Long, Map<Long, Double>> eventWeight;
-    private final Map<Long, Double> eventWeightSum;
-    private final Map<Long, Map<Long, Double>> minWeightsSum;
+    // Буфер мероприятий пользователя, переиспользуемый каждым потоком-обработчиком
+    private static final ThreadLocal<LongDoubleMap> USER_EVENTS = ThreadLocal.withInitial(LongDoubleMap::new);
+    // Пересчитанные сходства, ожидающие отправки: по каждой паре остаётся только последняя оценка
+    private static final ThreadLocal<PairScoreBuffer> PENDING = ThreadLocal.withInitial(PairScoreBuffer::new);
+    // Состояние: eventWeight, eventWeightSum и minWeightsSum
+    private final SimilarityStateStore stateStore;
+    // Затухание весов по времени действия
+    private final TimeDecay timeDecay;
+    // Сколько пар мероприятий пересчитывается на одно действие пользователя
+    private final DistributionSummary recomputedPairs;
     // Зависимости
     @Value("${kafka.topic-sums}")
     private String topic;
@@ -34,29 +43,57 @@ public class AggregatorService {
     private KafkaTemplate<String, EventSimilarityAvro> kafkaTemplate;
 
     // Конструктор
-    public AggregatorService() {
-        this.eventWeight = new ConcurrentHashMap<>();
-        this.eventWeightSum = new ConcurrentHashMap<>();
-        this.minWeightsSum = new ConcurrentHashMap<>();
+    public AggregatorService(SimilarityStateStore stateStore, TimeDecay timeDecay, MeterRegistry meterRegistry) {
+        this.stateStore = stateStore;
+        this.timeDecay = timeDecay;
+        this.recomputedPairs = DistributionSummary.builder("aggregator.similarity.recomputed.pairs")
+                .description("Количество пар мероприятий, пересчитанных на одно действие пользователя")
+                .baseUnit("pairs")
+                .register(meterRegistry);
     }
 
     // Основной метод расчёта весов
     public void calculateWeight(UserActionAvro userActionAvro) {
-        double weight = determineActionWeight(userActionAvro.getActionType().toString());
-        updateEventWeight(userActionAvro.getEventId(), userActionAvro.getUserId(), weight);
-        updateEventWeightSum(userActionAvro.getEventId());
-        calculateAndSendSimilarities(userActionAvro);
+        PairScoreBuffer pending = PENDING.get();
+        applyAction(userActionAvro, pending);
+        sendPending(pending);
+    }
+
+    // Пакетная обработка: пары, пересчитанные несколькими действиями пачки, отправляются один раз
+    // с итоговой оценкой; после отправки продюсер сбрасывается, чтобы оффсеты фиксировались
+    // только за доставленные результаты
+    public void calculateWeights(List<UserActionAvro> userActions) {
+        PairScoreBuffer pending = PENDING.get();
+        for (UserActionAvro userActionAvro : userActions) {
+            applyAction(userActionAvro, pending);
+        }
+        sendPending(pending);
+        kafkaTemplate.flush();
     }
 
     // Метод получения веса для события
     public double get(long eventA, long eventB) {
-        long first = Math.min(eventA, eventB);
-        long second = Math.max(eventA, eventB);
-        return minWeightsSum.computeIfAbsent(first, e -> new HashMap<>())
-                .getOrDefault(second, 0.0);
+        return stateStore.getMinWeightsSum(eventA, eventB);
     }
 
     // Вспомогательные методы
+    // Вес пользователя по мероприятию может только расти, поэтому суммы пересчитываются по приращению.
+    // При включённом затухании вес масштабируется по времени действия: повторное свежее действие
+    // поднимает вес, а устаревшие веса со временем удаляются уплотнением состояния
+    private void applyAction(UserActionAvro userActionAvro, PairScoreBuffer pending) {
+        double weight = determineActionWeight(userActionAvro.getActionType().toString())
+                * timeDecay.scale(userActionAvro.getTimestamp().toEpochMilli());
+        double oldWeight = stateStore.mergeEventWeight(userActionAvro.getEventId(), userActionAvro.getUserId(),
+                weight, userActionAvro.getTimestamp().toEpochMilli(), Math::max);
+        if (Double.isNaN(oldWeight)) {
+            LOGGER.fine("Действие по удалённому из состояния мероприятию " + userActionAvro.getEventId() + " пропущено");
+            return;
+        }
+        if (weight > oldWeight) {
+            calculateSimilarities(userActionAvro, oldWeight, pending);
+        }
+    }
+
     private double determineActionWeight(String actionType) {
         return switch (actionType) {
             case "LIKE" -> LIKE_WEIGHT;
@@ -69,51 +106,51 @@ public class AggregatorService {
         };
     }
 
-    private void updateEventWeight(Long eventId, Long userId, double weight) {
-        Map<Long, Double> userWeights = eventWeight.computeIfAbsent(eventId, k -> new HashMap<>());
-        if (userWeights.containsKey(userId)) {
-            userWeights.put(userId, Math.min(weight, userWeights.get(userId)));
-        } else {
-            userWeights.put(userId, weight);
-        }
-    }
-
-    private void updateEventWeightSum(Long eventId) {
-        AtomicReference<Double> sum = new AtomicReference<>(0.0);
-        eventWeight.get(eventId).values().forEach(value -> sum.updateAndGet(current -> current + value));
-        eventWeightSum.put(eventId, sum.get());
-    }
-
-    private void calculateAndSendSimilarities(UserActionAvro userActionAvro) {
-        Long eventId = userActionAvro.getEventId();
-        Long userId = userActionAvro.getUserId();
+    // Для каждого другого мероприятия пользователя S_min(A, B) меняется на
+    // min(новый вес A, вес B) - min(старый вес A, вес B); сходство = S_min / sqrt(S_A * S_B)
+    private void calculateSimilarities(UserActionAvro userActionAvro, double oldWeight, PairScoreBuffer pending) {
+        long eventId = userActionAvro.getEventId();
+        LongDoubleMap userEvents = USER_EVENTS.get();
+        stateStore.collectUserEvents(userActionAvro.getUserId(), userEvents);
+        double newWeight = userEvents.get(eventId, 0.0);
+        double eventWeightSum = stateStore.getEventWeightSum(eventId);
+        int pairs = 0;
 
-        for (Long otherEventId : eventWeight.keySet()) {
-            if (otherEventId.equals(eventId)) {
+        for (int i = 0; i < userEvents.capacity(); i++) {
+            if (!userEvents.isSlotUsed(i) || userEvents.keyAt(i) == eventId) {
                 continue;
             }
-            if (eventWeight.get(otherEventId).containsKey(userId)) {
-                double minWeight = Math.min(
-                        eventWeight.get(otherEventId).get(userId),
-                        eventWeight.get(eventId).get(userId)
-                );
-                put(eventId, otherEventId, minWeight);
-                send(eventId, otherEventId, minWeight, userActionAvro.getTimestamp());
-            }
+            long otherEventId = userEvents.keyAt(i);
+            double otherWeight = userEvents.valueAt(i);
+            double delta = Math.min(newWeight, otherWeight) - Math.min(oldWeight, otherWeight);
+            double minWeightsSum = delta != 0.0
+                    ? stateStore.addMinWeightsSum(eventId, otherEventId, delta)
+                    : stateStore.getMinWeightsSum(eventId, otherEventId);
+            double score = similarity(minWeightsSum, eventWeightSum, stateStore.getEventWeightSum(otherEventId));
+            pending.put(Math.min(eventId, otherEventId), Math.max(eventId, otherEventId),
+                    score, userActionAvro.getTimestamp().toEpochMilli());
+            pairs++;
         }
+        recomputedPairs.record(pairs);
     }
 
-    private void put(long eventA, long eventB, double sum) {
-        long first = Math.min(eventA, eventB);
-        long second = Math.max(eventA, eventB);
-        minWeightsSum.computeIfAbsent(first, e -> new HashMap<>()).put(second, sum);
+    private double similarity(double minWeightsSum, double eventWeightSumA, double eventWeightSumB) {
+        double denominator = Math.sqrt(eventWeightSumA * eventWeightSumB);
+        return denominator > 0.0 ? minWeightsSum / denominator : 0.0;
     }
 
-    private void send(long eventA, long eventB, double sum, Instant instant) {
-        long first = Math.min(eventA, eventB);
-        long second = Math.max(eventA, eventB);
+    private void sendPending(PairScoreBuffer pending) {
+        for (int i = 0; i < pending.capacity(); i++) {
+            if (pending.isSlotUsed(i)) {
+                send(pending.firstAt(i), pending.secondAt(i), pending.scoreAt(i),
+                        Instant.ofEpochMilli(pending.timestampAt(i)));
+            }
+        }
+        pending.clear();
+    }
 
-        EventSimilarityAvro eventSimilarityAvro = new EventSimilarityAvro(first, second, sum, instant);
+    private void send(long first, long second, double score, Instant instant) {
+        EventSimilarityAvro eventSimilarityAvro = new EventSimilarityAvro(first, second, score, instant);
         ProducerRecord<String, EventSimilarityAvro> record = new ProducerRecord<>(topic, eventSimilarityAvro);
         kafkaTemplate.send(record);
     }
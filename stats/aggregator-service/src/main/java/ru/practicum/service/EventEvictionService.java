@@ -0,0 +1,46 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.snapshot.SnapshotService;
+import ru.practicum.state.SimilarityStateStore;
+import ru.practicum.state.SimilarityStateStore.EvictionResult;
+
+// Периодическое удаление из состояния мероприятий без действий дольше ttl-ms.
+// Прошедшие мероприятия перестают получать просмотры, регистрации и лайки, поэтому время последнего
+// действия служит сигналом устаревания. Поздние действия по удалённому мероприятию отбрасываются
+// (см. SimilarityStateStore), пока его идентификатор не вытеснен из ограниченного списка удалённых
+@Slf4j
+@Service
+public class EventEvictionService {
+    private final SimilarityStateStore stateStore;
+    private final SnapshotService snapshotService;
+    private final boolean enabled;
+    private final long ttlMillis;
+
+    public EventEvictionService(SimilarityStateStore stateStore,
+                                SnapshotService snapshotService,
+                                @Value("${aggregator.eviction.enabled:true}") boolean enabled,
+                                @Value("${aggregator.eviction.ttl-ms:2592000000}") long ttlMillis) {
+        this.stateStore = stateStore;
+        this.snapshotService = snapshotService;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${aggregator.eviction.interval-ms:3600000}",
+            initialDelayString = "${aggregator.eviction.interval-ms:3600000}")
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        long cutoff = startedAt - ttlMillis;
+        EvictionResult[] result = new EvictionResult[1];
+        snapshotService.runExclusive(() -> result[0] = stateStore.evictInactiveEvents(cutoff));
+        log.info("Удаление неактивных мероприятий за {} мс: мероприятий {}, пар {}",
+                System.currentTimeMillis() - startedAt, result[0].removedEvents(), result[0].removedPairs());
+    }
+}
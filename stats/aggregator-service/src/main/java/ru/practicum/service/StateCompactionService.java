@@ -0,0 +1,48 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.snapshot.SnapshotService;
+import ru.practicum.state.SimilarityStateStore;
+import ru.practicum.state.SimilarityStateStore.CompactionResult;
+import ru.practicum.state.TimeDecay;
+
+// Фоновое уплотнение состояния при включённом затухании: веса пользователей, затухшие ниже порога,
+// удаляются вместе с их вкладом в суммы пар, после чего удаляются пустые пары и мероприятия
+@Slf4j
+@Service
+public class StateCompactionService {
+    private final SimilarityStateStore stateStore;
+    private final SnapshotService snapshotService;
+    private final TimeDecay timeDecay;
+    // Порог в единицах исходных весов действий (LIKE = 1.0) на текущий момент
+    private final double threshold;
+
+    public StateCompactionService(SimilarityStateStore stateStore,
+                                  SnapshotService snapshotService,
+                                  TimeDecay timeDecay,
+                                  @Value("${aggregator.decay.compaction.threshold:0.01}") double threshold) {
+        this.stateStore = stateStore;
+        this.snapshotService = snapshotService;
+        this.timeDecay = timeDecay;
+        this.threshold = threshold;
+    }
+
+    @Scheduled(fixedDelayString = "${aggregator.decay.compaction.interval-ms:3600000}",
+            initialDelayString = "${aggregator.decay.compaction.interval-ms:3600000}")
+    public void compact() {
+        if (!timeDecay.isEnabled()) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        // хранимые веса растут со временем действия, поэтому порог переводится в масштаб текущего момента
+        double storedThreshold = threshold * timeDecay.scale(startedAt);
+        CompactionResult[] result = new CompactionResult[1];
+        snapshotService.runExclusive(() -> result[0] = stateStore.compact(storedThreshold));
+        log.info("Уплотнение состояния за {} мс: удалено весов {}, пар {}, мероприятий {}",
+                System.currentTimeMillis() - startedAt,
+                result[0].removedWeights(), result[0].removedPairs(), result[0].removedEvents());
+    }
+}
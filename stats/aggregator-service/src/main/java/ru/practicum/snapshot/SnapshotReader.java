@@ -0,0 +1,120 @@
+package ru.practicum.snapshot;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Последовательное чтение снимка, записанного SnapshotWriter
+public class SnapshotReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final long contentSize;
+    private long remainingInFile;
+
+    public SnapshotReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.contentSize = channel.size() - Long.BYTES;
+            if (contentSize < 0) {
+                throw new IOException("Файл снимка повреждён: " + path);
+            }
+            verifyChecksum(path);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.remainingInFile = contentSize;
+        buffer.limit(0);
+    }
+
+    public int readInt() throws IOException {
+        ensureAvailable(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+        ensureAvailable(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    public double readDouble() throws IOException {
+        ensureAvailable(Double.BYTES);
+        return buffer.getDouble();
+    }
+
+    public String readString() throws IOException {
+        int length = readInt();
+        if (length < 0 || length > BUFFER_SIZE) {
+            throw new IOException("Некорректная длина строки в снимке: " + length);
+        }
+        ensureAvailable(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Первый проход по файлу: сверка CRC32 содержимого с сохранённой в конце суммой
+    private void verifyChecksum(Path path) throws IOException {
+        CRC32 checksum = new CRC32();
+        long position = 0;
+        while (position < contentSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, contentSize - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            checksum.update(buffer);
+        }
+        buffer.clear();
+        buffer.limit(Long.BYTES);
+        long checksumPosition = contentSize;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, checksumPosition);
+            if (read < 0) {
+                break;
+            }
+            checksumPosition += read;
+        }
+        buffer.flip();
+        if (buffer.remaining() < Long.BYTES || buffer.getLong() != checksum.getValue()) {
+            throw new IOException("Контрольная сумма снимка не совпадает: " + path);
+        }
+        channel.position(0);
+    }
+
+    private void ensureAvailable(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes && remainingInFile > 0) {
+            int limit = (int) Math.min(buffer.capacity(), buffer.position() + remainingInFile);
+            buffer.limit(limit);
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            remainingInFile -= read;
+        }
+        buffer.flip();
+        if (buffer.remaining() < bytes) {
+            throw new EOFException("Неожиданный конец файла снимка");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package ru.practicum.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.state.SimilarityStateStore;
+import ru.practicum.state.TimeDecay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Периодические снимки состояния агрегатора на локальный диск вместе с оффсетами Kafka,
+// до которых состояние уже учтено. При старте загружается последний корректный снимок,
+// а слушатель перематывает партиции на сохранённые оффсеты вместо чтения топика с начала.
+@Slf4j
+@Component
+public class SnapshotService {
+    private static final int MAGIC = 0x45574D53;
+    private static final int VERSION = 4;
+    // снимки версии 3 отличаются только отсутствием списка удалённых мероприятий
+    private static final int MIN_SUPPORTED_VERSION = 3;
+    private static final String FILE_PREFIX = "state-";
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private final SimilarityStateStore stateStore;
+    private final TimeDecay timeDecay;
+    // Обработка действий идёт под read-lock, снимок снимается под write-lock
+    private final ReentrantReadWriteLock processingLock = new ReentrantReadWriteLock();
+    // Следующий оффсет к чтению по каждой партиции, уже отражённый в состоянии
+    private final Map<TopicPartition, Long> consumedOffsets = new ConcurrentHashMap<>();
+    // Оффсеты из загруженного снимка, на которые ещё не выполнена перемотка
+    private final Map<TopicPartition, Long> restoredOffsets = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Path directory;
+    private final int retained;
+    private volatile boolean dirty;
+
+    public SnapshotService(SimilarityStateStore stateStore,
+                           TimeDecay timeDecay,
+                           @Value("${aggregator.snapshot.enabled:true}") boolean enabled,
+                           @Value("${aggregator.snapshot.directory:${java.io.tmpdir}/aggregator-snapshots}") String directory,
+                           @Value("${aggregator.snapshot.retained:2}") int retained) {
+        this.stateStore = stateStore;
+        this.timeDecay = timeDecay;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.retained = Math.max(1, retained);
+    }
+
+    public void beginProcessing() {
+        processingLock.readLock().lock();
+    }
+
+    public void endProcessing() {
+        processingLock.readLock().unlock();
+    }
+
+    // Выполняет task при остановленной обработке действий (например, уплотнение состояния)
+    public void runExclusive(Runnable task) {
+        processingLock.writeLock().lock();
+        try {
+            task.run();
+            dirty = true;
+        } finally {
+            processingLock.writeLock().unlock();
+        }
+    }
+
+    // Вызывается после применения записи к состоянию, под beginProcessing()
+    public void markConsumed(String topic, int partition, long offset) {
+        consumedOffsets.merge(new TopicPartition(topic, partition), offset + 1, Math::max);
+        dirty = true;
+    }
+
+    // После загрузки снимка назначенные партиции перематываются на сохранённые в нём оффсеты (однократно)
+    public void seekToRestoredOffsets(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition partition : assignments.keySet()) {
+            Long offset = restoredOffsets.remove(partition);
+            if (offset != null) {
+                log.info("Перемотка {} на оффсет {} из снимка состояния", partition, offset);
+                callback.seek(partition.topic(), partition.partition(), offset);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (!enabled) {
+            return;
+        }
+        for (Path file : listSnapshots()) {
+            try (SnapshotReader reader = new SnapshotReader(file)) {
+                int magic = reader.readInt();
+                int version = reader.readInt();
+                if (magic != MAGIC || version < MIN_SUPPORTED_VERSION || version > VERSION) {
+                    log.warn("Неподдерживаемый формат снимка: {}", file);
+                    continue;
+                }
+                long createdAt = reader.readLong();
+                // веса в снимке хранятся в масштабе затухания, с которым он был записан
+                double lambda = reader.readDouble();
+                if (Double.compare(lambda, timeDecay.lambda()) != 0) {
+                    log.warn("Снимок {} записан с другим параметром затухания ({} вместо {}), пропускаем",
+                            file, lambda, timeDecay.lambda());
+                    continue;
+                }
+                Map<TopicPartition, Long> offsets = readOffsets(reader);
+                stateStore.restoreSnapshot(reader, version >= 4);
+                consumedOffsets.putAll(offsets);
+                restoredOffsets.putAll(offsets);
+                log.info("Состояние восстановлено из снимка {} (создан {}), оффсеты: {}", file, createdAt, offsets);
+                return;
+            } catch (IOException e) {
+                log.warn("Не удалось загрузить снимок {}, пробуем предыдущий", file, e);
+                stateStore.clear();
+            }
+        }
+        log.info("Снимки состояния не найдены в {}, состояние будет построено из топика", directory);
+    }
+
+    @Scheduled(fixedDelayString = "${aggregator.snapshot.interval-ms:60000}",
+            initialDelayString = "${aggregator.snapshot.interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled || !dirty) {
+            return;
+        }
+        processingLock.writeLock().lock();
+        try {
+            writeSnapshot();
+            dirty = false;
+        } catch (IOException e) {
+            log.error("Ошибка записи снимка состояния в {}", directory, e);
+        } finally {
+            processingLock.writeLock().unlock();
+        }
+        removeOldSnapshots();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private void writeSnapshot() throws IOException {
+        Files.createDirectories(directory);
+        long createdAt = System.currentTimeMillis();
+        Path target = directory.resolve(FILE_PREFIX + createdAt + FILE_SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (SnapshotWriter writer = new SnapshotWriter(temp)) {
+            writer.writeInt(MAGIC);
+            writer.writeInt(VERSION);
+            writer.writeLong(createdAt);
+            writer.writeDouble(timeDecay.lambda());
+            writer.writeInt(consumedOffsets.size());
+            for (Map.Entry<TopicPartition, Long> entry : consumedOffsets.entrySet()) {
+                writer.writeString(entry.getKey().topic());
+                writer.writeInt(entry.getKey().partition());
+                writer.writeLong(entry.getValue());
+            }
+            stateStore.writeSnapshot(writer);
+            writer.finish();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Снимок состояния записан: {}, оффсеты: {}", target, consumedOffsets);
+    }
+
+    private Map<TopicPartition, Long> readOffsets(SnapshotReader reader) throws IOException {
+        int count = reader.readInt();
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String topic = reader.readString();
+            int partition = reader.readInt();
+            offsets.put(new TopicPartition(topic, partition), reader.readLong());
+        }
+        return offsets;
+    }
+
+    private void removeOldSnapshots() {
+        List<Path> snapshots = listSnapshots();
+        for (int i = retained; i < snapshots.size(); i++) {
+            try {
+                Files.deleteIfExists(snapshots.get(i));
+            } catch (IOException e) {
+                log.warn("Не удалось удалить устаревший снимок {}", snapshots.get(i), e);
+            }
+        }
+    }
+
+    // Снимки от новых к старым
+    private List<Path> listSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(SnapshotService::createdAt).reversed())
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать каталог снимков {}", directory, e);
+            return List.of();
+        }
+    }
+
+    private static long createdAt(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
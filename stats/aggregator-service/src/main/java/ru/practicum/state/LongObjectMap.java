@@ -0,0 +1,145 @@
+package ru.practicum.state;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+// Хеш-таблица long -> объект с открытой адресацией; null-значения не допускаются
+// и используются как признак свободного слота. Не потокобезопасна.
+public class LongObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        allocate(LongDoubleMap.tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(long key) {
+        return valueAt(slotFor(key));
+    }
+
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        int index = slotFor(key);
+        if (values[index] != null) {
+            values[index] = value;
+            return;
+        }
+        insertAt(index, key, value);
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        int index = slotFor(key);
+        V value = valueAt(index);
+        if (value == null) {
+            value = factory.apply(key);
+            insertAt(index, key, value);
+        }
+        return value;
+    }
+
+    public V remove(long key) {
+        int index = slotFor(key);
+        V value = valueAt(index);
+        if (value != null) {
+            shiftBack(index);
+            size--;
+        }
+        return value;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Доступ к слотам для обхода без аллокаций: for (i < capacity()) if (valueAt(i) != null) keyAt(i)
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    private int slotFor(long key) {
+        int index = LongDoubleMap.hash(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void insertAt(int index, long key, V value) {
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void shiftBack(int index) {
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = LongDoubleMap.hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Превышена максимальная ёмкость таблицы: " + MAX_CAPACITY);
+        }
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int index = slotFor(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.75f);
+    }
+}
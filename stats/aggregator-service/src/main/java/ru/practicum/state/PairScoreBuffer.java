@@ -0,0 +1,116 @@
+package ru.practicum.state;
+
+import java.util.Arrays;
+
+// Буфер пересчитанных сходств пар мероприятий: повторная запись той же пары (first, second)
+// заменяет оценку и метку времени, поэтому после обработки пачки в буфере остаётся
+// только итоговое значение по каждой паре. Не потокобезопасен.
+public class PairScoreBuffer {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] firsts;
+    private long[] seconds;
+    private double[] scores;
+    private long[] timestamps;
+    private boolean[] used;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public PairScoreBuffer() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void put(long first, long second, double score, long timestamp) {
+        int index = slotFor(first, second);
+        if (!used[index]) {
+            firsts[index] = first;
+            seconds[index] = second;
+            used[index] = true;
+            size++;
+        }
+        scores[index] = score;
+        timestamps[index] = timestamp;
+        if (size > resizeThreshold) {
+            rehash(firsts.length << 1);
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // Доступ к слотам для обхода без аллокаций
+    public int capacity() {
+        return firsts.length;
+    }
+
+    public boolean isSlotUsed(int slot) {
+        return used[slot];
+    }
+
+    public long firstAt(int slot) {
+        return firsts[slot];
+    }
+
+    public long secondAt(int slot) {
+        return seconds[slot];
+    }
+
+    public double scoreAt(int slot) {
+        return scores[slot];
+    }
+
+    public long timestampAt(int slot) {
+        return timestamps[slot];
+    }
+
+    private int slotFor(long first, long second) {
+        int index = LongDoubleMap.hash(first * 31 + second) & mask;
+        while (used[index] && (firsts[index] != first || seconds[index] != second)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldFirsts = firsts;
+        long[] oldSeconds = seconds;
+        double[] oldScores = scores;
+        long[] oldTimestamps = timestamps;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+        for (int i = 0; i < oldFirsts.length; i++) {
+            if (oldUsed[i]) {
+                int index = slotFor(oldFirsts[i], oldSeconds[i]);
+                firsts[index] = oldFirsts[i];
+                seconds[index] = oldSeconds[i];
+                scores[index] = oldScores[i];
+                timestamps[index] = oldTimestamps[i];
+                used[index] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        firsts = new long[capacity];
+        seconds = new long[capacity];
+        scores = new double[capacity];
+        timestamps = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.75f);
+    }
+}
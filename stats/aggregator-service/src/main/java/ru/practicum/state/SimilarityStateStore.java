@@ -0,0 +1,498 @@
+package ru.practicum.state;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.snapshot.SnapshotReader;
+import ru.practicum.snapshot.SnapshotWriter;
+
+import java.io.IOException;
+import java.util.function.DoubleBinaryOperator;
+
+// Хранилище состояния агрегатора: веса пользователей по мероприятиям (eventWeight),
+// суммы весов мероприятий (eventWeightSum) и суммы минимальных весов пар (minWeightsSum).
+// Данные разбиты на сегменты по идентификатору мероприятия, каждый сегмент защищён своим монитором,
+// поэтому обработчики из разных потоков Kafka блокируют друг друга только при совпадении сегмента.
+// Обратный индекс пользователь -> мероприятия хранится в отдельных сегментах по идентификатору пользователя.
+// Записи в топике ключуются по пользователю, поэтому все действия одного пользователя обрабатывает
+// поток-владелец его партиции, и пересчёт его весов не конкурирует с другими потоками.
+// Суммы должны покрывать всех пользователей, поэтому агрегатор работает в одном экземпляре, владеющем
+// всеми партициями топика: второй экземпляр в той же группе считал бы сходства по части пользователей.
+// Идентификаторы удалённых по неактивности мероприятий запоминаются (не более max-evicted-events):
+// поздние действия по ним отбрасываются, иначе состояние начало бы копиться с нуля и агрегатор отправил
+// бы сходства по одному-двум пользователям, перетирающие в анализаторе оценки по полной истории.
+@Component
+public class SimilarityStateStore {
+
+    private final Stripe[] stripes;
+    private final UserStripe[] userStripes;
+    private final int stripeMask;
+    private final int maxEvictedPerStripe;
+
+    public SimilarityStateStore(@Value("${aggregator.state.stripes:64}") int stripeCount,
+                                @Value("${aggregator.eviction.max-evicted-events:100000}") int maxEvictedEvents) {
+        int count = 1;
+        while (count < stripeCount) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        this.userStripes = new UserStripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+            userStripes[i] = new UserStripe();
+        }
+        this.stripeMask = count - 1;
+        this.maxEvictedPerStripe = Math.max(1, maxEvictedEvents / count);
+    }
+
+    // Объединяет новый вес пользователя с текущим и возвращает прежний вес (0, если его не было);
+    // actionTime продлевает жизнь мероприятия в состоянии (см. evictInactiveEvents).
+    // Для удалённого по неактивности мероприятия действие не применяется и возвращается NaN
+    public double mergeEventWeight(long eventId, long userId, double weight, long actionTime,
+                                   DoubleBinaryOperator mergeFunction) {
+        double oldWeight;
+        double newWeight;
+        Stripe stripe = stripeFor(eventId);
+        synchronized (stripe) {
+            if (stripe.evicted.containsKey(eventId)) {
+                return Double.NaN;
+            }
+            EventState state = stripe.events.computeIfAbsent(eventId, id -> new EventState());
+            oldWeight = state.userWeights.get(userId, 0.0);
+            newWeight = state.userWeights.containsKey(userId)
+                    ? mergeFunction.applyAsDouble(oldWeight, weight)
+                    : weight;
+            state.userWeights.put(userId, newWeight);
+            state.weightSum += newWeight - oldWeight;
+            state.lastActionAt = Math.max(state.lastActionAt, actionTime);
+        }
+        UserStripe userStripe = userStripeFor(userId);
+        synchronized (userStripe) {
+            userStripe.users.computeIfAbsent(userId, id -> new LongDoubleMap()).put(eventId, newWeight);
+        }
+        return oldWeight;
+    }
+
+    public double getEventWeight(long eventId, long userId) {
+        Stripe stripe = stripeFor(eventId);
+        synchronized (stripe) {
+            EventState state = stripe.events.get(eventId);
+            return state == null ? 0.0 : state.userWeights.get(userId, 0.0);
+        }
+    }
+
+    public double getEventWeightSum(long eventId) {
+        Stripe stripe = stripeFor(eventId);
+        synchronized (stripe) {
+            EventState state = stripe.events.get(eventId);
+            return state == null ? 0.0 : state.weightSum;
+        }
+    }
+
+    // Сумма минимальных весов хранится у мероприятия с меньшим идентификатором
+    public double getMinWeightsSum(long eventA, long eventB) {
+        long first = Math.min(eventA, eventB);
+        long second = Math.max(eventA, eventB);
+        Stripe stripe = stripeFor(first);
+        synchronized (stripe) {
+            EventState state = stripe.events.get(first);
+            return state == null ? 0.0 : state.minWeightsSums.get(second, 0.0);
+        }
+    }
+
+    // Прибавляет delta к сумме минимальных весов пары и возвращает новое значение S_min
+    public double addMinWeightsSum(long eventA, long eventB, double delta) {
+        long first = Math.min(eventA, eventB);
+        long second = Math.max(eventA, eventB);
+        Stripe stripe = stripeFor(first);
+        synchronized (stripe) {
+            return stripe.events.computeIfAbsent(first, id -> new EventState()).minWeightsSums.addTo(second, delta);
+        }
+    }
+
+    // Заполняет target весами пользователя по всем мероприятиям, с которыми он взаимодействовал,
+    // используя обратный индекс: стоимость пропорциональна числу мероприятий пользователя
+    public void collectUserEvents(long userId, LongDoubleMap target) {
+        target.clear();
+        UserStripe userStripe = userStripeFor(userId);
+        synchronized (userStripe) {
+            LongDoubleMap userEvents = userStripe.users.get(userId);
+            if (userEvents == null) {
+                return;
+            }
+            for (int i = 0; i < userEvents.capacity(); i++) {
+                if (userEvents.isSlotUsed(i)) {
+                    target.put(userEvents.keyAt(i), userEvents.valueAt(i));
+                }
+            }
+        }
+    }
+
+    // Удаляет веса пользователей ниже threshold (в единицах хранения) вместе с их вкладом в S_min всех пар
+    // пользователя, затем пары с S_min ниже порога и опустевшие мероприятия.
+    // Вызывающий обязан приостановить обработку действий на время уплотнения.
+    public CompactionResult compact(double threshold) {
+        LongDoubleMap lowWeights = new LongDoubleMap();
+        int removedWeights = 0;
+        for (UserStripe userStripe : userStripes) {
+            synchronized (userStripe) {
+                LongObjectMap<LongDoubleMap> users = userStripe.users;
+                for (int u = 0; u < users.capacity(); u++) {
+                    LongDoubleMap userEvents = users.valueAt(u);
+                    if (userEvents == null) {
+                        continue;
+                    }
+                    long userId = users.keyAt(u);
+                    lowWeights.clear();
+                    for (int i = 0; i < userEvents.capacity(); i++) {
+                        if (userEvents.isSlotUsed(i) && userEvents.valueAt(i) < threshold) {
+                            lowWeights.put(userEvents.keyAt(i), userEvents.valueAt(i));
+                        }
+                    }
+                    // удалённое мероприятие сразу убирается из карты пользователя,
+                    // чтобы вклад пары из двух удаляемых весов вычитался один раз
+                    for (int i = 0; i < lowWeights.capacity(); i++) {
+                        if (lowWeights.isSlotUsed(i)) {
+                            long eventId = lowWeights.keyAt(i);
+                            double weight = lowWeights.valueAt(i);
+                            userEvents.remove(eventId);
+                            removeUserWeight(eventId, userId, weight, userEvents);
+                            removedWeights++;
+                        }
+                    }
+                }
+                removeEmptyUsers(users);
+            }
+        }
+
+        int removedPairs = 0;
+        int removedEvents = 0;
+        LongDoubleMap lowPairs = new LongDoubleMap();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                LongObjectMap<EventState> events = stripe.events;
+                lowWeights.clear();
+                for (int e = 0; e < events.capacity(); e++) {
+                    EventState state = events.valueAt(e);
+                    if (state == null) {
+                        continue;
+                    }
+                    lowPairs.clear();
+                    for (int i = 0; i < state.minWeightsSums.capacity(); i++) {
+                        if (state.minWeightsSums.isSlotUsed(i) && state.minWeightsSums.valueAt(i) < threshold) {
+                            lowPairs.put(state.minWeightsSums.keyAt(i), 0.0);
+                        }
+                    }
+                    for (int i = 0; i < lowPairs.capacity(); i++) {
+                        if (lowPairs.isSlotUsed(i)) {
+                            state.minWeightsSums.remove(lowPairs.keyAt(i));
+                            removedPairs++;
+                        }
+                    }
+                    if (state.userWeights.isEmpty() && state.minWeightsSums.isEmpty()) {
+                        lowWeights.put(events.keyAt(e), 0.0);
+                    }
+                }
+                for (int i = 0; i < lowWeights.capacity(); i++) {
+                    if (lowWeights.isSlotUsed(i)) {
+                        events.remove(lowWeights.keyAt(i));
+                        removedEvents++;
+                    }
+                }
+            }
+        }
+        return new CompactionResult(removedWeights, removedPairs, removedEvents);
+    }
+
+    // Удаляет мероприятия, по которым не было действий с момента cutoff: их веса, суммы, все пары
+    // с их участием и ссылки в обратном индексе пользователей.
+    // Вызывающий обязан приостановить обработку действий на время удаления.
+    public EvictionResult evictInactiveEvents(long cutoff) {
+        LongDoubleMap expired = new LongDoubleMap();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                LongObjectMap<EventState> events = stripe.events;
+                for (int e = 0; e < events.capacity(); e++) {
+                    EventState state = events.valueAt(e);
+                    if (state != null && state.lastActionAt < cutoff) {
+                        expired.put(events.keyAt(e), 0.0);
+                    }
+                }
+            }
+        }
+
+        int removedPairs = 0;
+        LongDoubleMap userEvents = new LongDoubleMap();
+        for (int i = 0; i < expired.capacity(); i++) {
+            if (!expired.isSlotUsed(i)) {
+                continue;
+            }
+            long eventId = expired.keyAt(i);
+            EventState state;
+            Stripe stripe = stripeFor(eventId);
+            synchronized (stripe) {
+                state = stripe.events.remove(eventId);
+                if (state != null) {
+                    stripe.evicted.put(eventId, cutoff);
+                }
+            }
+            if (state == null) {
+                continue;
+            }
+            // пары, где мероприятие меньшее, удалены вместе с его состоянием,
+            // пары, где оно большее, хранятся у других мероприятий его пользователей
+            removedPairs += state.minWeightsSums.size();
+            LongDoubleMap userWeights = state.userWeights;
+            for (int u = 0; u < userWeights.capacity(); u++) {
+                if (!userWeights.isSlotUsed(u)) {
+                    continue;
+                }
+                long userId = userWeights.keyAt(u);
+                detachUserEvent(userId, eventId, userEvents);
+                for (int j = 0; j < userEvents.capacity(); j++) {
+                    if (userEvents.isSlotUsed(j) && userEvents.keyAt(j) < eventId
+                            && removeMinWeightsSum(userEvents.keyAt(j), eventId)) {
+                        removedPairs++;
+                    }
+                }
+            }
+        }
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                trimEvicted(stripe.evicted);
+            }
+        }
+        return new EvictionResult(expired.size(), removedPairs);
+    }
+
+    // Запись состояния в снимок. Вызывающий обязан приостановить обработку действий на время записи.
+    // Обратный индекс не сохраняется: он восстанавливается из весов мероприятий.
+    public void writeSnapshot(SnapshotWriter writer) throws IOException {
+        int eventCount = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                eventCount += stripe.events.size();
+            }
+        }
+        writer.writeInt(eventCount);
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                LongObjectMap<EventState> events = stripe.events;
+                for (int i = 0; i < events.capacity(); i++) {
+                    EventState state = events.valueAt(i);
+                    if (state != null) {
+                        writer.writeLong(events.keyAt(i));
+                        writer.writeDouble(state.weightSum);
+                        writer.writeLong(state.lastActionAt);
+                        writeMap(writer, state.userWeights);
+                        writeMap(writer, state.minWeightsSums);
+                    }
+                }
+            }
+        }
+        int evictedCount = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evictedCount += stripe.evicted.size();
+            }
+        }
+        writer.writeInt(evictedCount);
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                LongDoubleMap evicted = stripe.evicted;
+                for (int i = 0; i < evicted.capacity(); i++) {
+                    if (evicted.isSlotUsed(i)) {
+                        writer.writeLong(evicted.keyAt(i));
+                        writer.writeDouble(evicted.valueAt(i));
+                    }
+                }
+            }
+        }
+    }
+
+    // Полная замена текущего состояния содержимым снимка; в снимках до версии 4 нет удалённых мероприятий
+    public void restoreSnapshot(SnapshotReader reader, boolean withEvicted) throws IOException {
+        clear();
+        int eventCount = reader.readInt();
+        for (int e = 0; e < eventCount; e++) {
+            long eventId = reader.readLong();
+            EventState state = new EventState();
+            state.weightSum = reader.readDouble();
+            state.lastActionAt = reader.readLong();
+            readMap(reader, state.userWeights);
+            readMap(reader, state.minWeightsSums);
+            Stripe stripe = stripeFor(eventId);
+            synchronized (stripe) {
+                stripe.events.put(eventId, state);
+            }
+            LongDoubleMap userWeights = state.userWeights;
+            for (int i = 0; i < userWeights.capacity(); i++) {
+                if (userWeights.isSlotUsed(i)) {
+                    long userId = userWeights.keyAt(i);
+                    UserStripe userStripe = userStripeFor(userId);
+                    synchronized (userStripe) {
+                        userStripe.users.computeIfAbsent(userId, id -> new LongDoubleMap())
+                                .put(eventId, userWeights.valueAt(i));
+                    }
+                }
+            }
+        }
+        if (withEvicted) {
+            int evictedCount = reader.readInt();
+            for (int i = 0; i < evictedCount; i++) {
+                long eventId = reader.readLong();
+                double evictedAt = reader.readDouble();
+                Stripe stripe = stripeFor(eventId);
+                synchronized (stripe) {
+                    stripe.evicted.put(eventId, evictedAt);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                stripes[i].events.clear();
+                stripes[i].evicted.clear();
+            }
+            synchronized (userStripes[i]) {
+                userStripes[i].users.clear();
+            }
+        }
+    }
+
+    // Убирает мероприятие из обратного индекса пользователя и копирует оставшиеся мероприятия в target
+    private void detachUserEvent(long userId, long eventId, LongDoubleMap target) {
+        target.clear();
+        UserStripe userStripe = userStripeFor(userId);
+        synchronized (userStripe) {
+            LongDoubleMap userEvents = userStripe.users.get(userId);
+            if (userEvents == null) {
+                return;
+            }
+            userEvents.remove(eventId);
+            if (userEvents.isEmpty()) {
+                userStripe.users.remove(userId);
+                return;
+            }
+            for (int i = 0; i < userEvents.capacity(); i++) {
+                if (userEvents.isSlotUsed(i)) {
+                    target.put(userEvents.keyAt(i), userEvents.valueAt(i));
+                }
+            }
+        }
+    }
+
+    private boolean removeMinWeightsSum(long first, long second) {
+        Stripe stripe = stripeFor(first);
+        synchronized (stripe) {
+            EventState state = stripe.events.get(first);
+            return state != null && state.minWeightsSums.remove(second);
+        }
+    }
+
+    // Убирает вес пользователя из мероприятия и вычитает min(вес, вес другого мероприятия) из S_min пар
+    private void removeUserWeight(long eventId, long userId, double weight, LongDoubleMap otherUserEvents) {
+        Stripe stripe = stripeFor(eventId);
+        synchronized (stripe) {
+            EventState state = stripe.events.get(eventId);
+            if (state != null) {
+                state.userWeights.remove(userId);
+                state.weightSum -= weight;
+            }
+        }
+        for (int i = 0; i < otherUserEvents.capacity(); i++) {
+            if (otherUserEvents.isSlotUsed(i)) {
+                addMinWeightsSum(eventId, otherUserEvents.keyAt(i), -Math.min(weight, otherUserEvents.valueAt(i)));
+            }
+        }
+    }
+
+    private static void removeEmptyUsers(LongObjectMap<LongDoubleMap> users) {
+        LongDoubleMap empty = new LongDoubleMap();
+        for (int u = 0; u < users.capacity(); u++) {
+            LongDoubleMap userEvents = users.valueAt(u);
+            if (userEvents != null && userEvents.size() == 0) {
+                empty.put(users.keyAt(u), 0.0);
+            }
+        }
+        for (int i = 0; i < empty.capacity(); i++) {
+            if (empty.isSlotUsed(i)) {
+                users.remove(empty.keyAt(i));
+            }
+        }
+    }
+
+    private static void writeMap(SnapshotWriter writer, LongDoubleMap map) throws IOException {
+        writer.writeInt(map.size());
+        for (int i = 0; i < map.capacity(); i++) {
+            if (map.isSlotUsed(i)) {
+                writer.writeLong(map.keyAt(i));
+                writer.writeDouble(map.valueAt(i));
+            }
+        }
+    }
+
+    private static void readMap(SnapshotReader reader, LongDoubleMap map) throws IOException {
+        int size = reader.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(reader.readLong(), reader.readDouble());
+        }
+    }
+
+    private Stripe stripeFor(long eventId) {
+        return stripes[LongDoubleMap.hash(eventId) & stripeMask];
+    }
+
+    private UserStripe userStripeFor(long userId) {
+        return userStripes[LongDoubleMap.hash(userId) & stripeMask];
+    }
+
+    // Сверх лимита забываются мероприятия, удалённые раньше остальных; такое мероприятие при новом
+    // действии снова начнёт копить состояние с нуля
+    private void trimEvicted(LongDoubleMap evicted) {
+        while (evicted.size() > maxEvictedPerStripe) {
+            double oldest = Double.MAX_VALUE;
+            for (int i = 0; i < evicted.capacity(); i++) {
+                if (evicted.isSlotUsed(i)) {
+                    oldest = Math.min(oldest, evicted.valueAt(i));
+                }
+            }
+            LongDoubleMap stale = new LongDoubleMap();
+            for (int i = 0; i < evicted.capacity(); i++) {
+                if (evicted.isSlotUsed(i) && evicted.valueAt(i) == oldest) {
+                    stale.put(evicted.keyAt(i), oldest);
+                }
+            }
+            for (int i = 0; i < stale.capacity(); i++) {
+                if (stale.isSlotUsed(i)) {
+                    evicted.remove(stale.keyAt(i));
+                }
+            }
+        }
+    }
+
+    private static final class Stripe {
+        private final LongObjectMap<EventState> events = new LongObjectMap<>();
+        // удалённые по неактивности мероприятия -> граница неактивности, по которой они удалены
+        private final LongDoubleMap evicted = new LongDoubleMap();
+    }
+
+    private static final class UserStripe {
+        private final LongObjectMap<LongDoubleMap> users = new LongObjectMap<>();
+    }
+
+    public record CompactionResult(int removedWeights, int removedPairs, int removedEvents) {
+    }
+
+    public record EvictionResult(int removedEvents, int removedPairs) {
+    }
+
+    private static final class EventState {
+        private final LongDoubleMap userWeights = new LongDoubleMap();
+        private final LongDoubleMap minWeightsSums = new LongDoubleMap();
+        private double weightSum;
+        // Время последнего действия по мероприятию (epoch millis)
+        private long lastActionAt;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.state;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Экспоненциальное затухание весов по времени действия (forward decay).
+// Вес хранится как w * e^(λ(t - LANDMARK)), где t — время действия: более свежее действие весит больше,
+// а накопленные суммы не нужно пересчитывать со временем. Реальный вес на момент now получается
+// умножением на e^(-λ(now - LANDMARK)); сходство S_min / sqrt(S_A * S_B) от этого множителя не зависит.
+// Правило «вес только растёт» сохраняется: повторное действие обновляет вес до более свежего значения.
+@Component
+public class TimeDecay {
+    // 2024-01-01T00:00:00Z; при периоде полураспада 30 дней переполнения double не будет десятилетиями
+    static final long LANDMARK_MILLIS = 1_704_067_200_000L;
+
+    private final double lambda;
+
+    public TimeDecay(@Value("${aggregator.decay.enabled:false}") boolean enabled,
+                     @Value("${aggregator.decay.half-life-hours:720}") double halfLifeHours) {
+        this.lambda = enabled ? Math.log(2) / (halfLifeHours * 3_600_000d) : 0.0;
+    }
+
+    public boolean isEnabled() {
+        return lambda != 0.0;
+    }
+
+    // Параметр затухания на миллисекунду; 0, если затухание выключено
+    public double lambda() {
+        return lambda;
+    }
+
+    // Множитель хранимого веса для действия в момент timestampMillis
+    public double scale(long timestampMillis) {
+        return lambda == 0.0 ? 1.0 : Math.exp(lambda * (timestampMillis - LANDMARK_MILLIS));
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.state.SimilarityStateStore;
+import ru.practicum.state.TimeDecay;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// Инкрементальный пересчёт сходства сверяется с полным пересчётом косинуса по всем действиям
+class AggregatorServiceTest {
+    private static final double EPSILON = 1e-9;
+    private static final Map<ActionTypeAvro, Double> WEIGHTS = Map.of(
+            ActionTypeAvro.VIEW, 0.4,
+            ActionTypeAvro.REGISTER, 0.8,
+            ActionTypeAvro.LIKE, 1.0);
+
+    private SimilarityStateStore stateStore;
+    private AggregatorService service;
+    private KafkaTemplate<String, EventSimilarityAvro> kafkaTemplate;
+    // userId -> eventId -> максимальный вес действия
+    private final Map<Long, Map<Long, Double>> weights = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stateStore = new SimilarityStateStore(4, 1_000);
+        service = new AggregatorService(stateStore, new TimeDecay(false, 720), new SimpleMeterRegistry());
+        kafkaTemplate = mock(KafkaTemplate.class);
+        ReflectionTestUtils.setField(service, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(service, "topic", "stats.events-similarity.v1");
+    }
+
+    @Test
+    void sentScoresMatchBruteForceCosine() {
+        Random random = new Random(2024);
+        for (int i = 0; i < 3_000; i++) {
+            UserActionAvro action = action(random.nextInt(40), random.nextInt(25),
+                    ActionTypeAvro.values()[random.nextInt(3)], i);
+            clearInvocations(kafkaTemplate);
+
+            service.calculateWeight(action);
+
+            for (EventSimilarityAvro similarity : sent()) {
+                assertEquals(bruteForceSimilarity(similarity.getEventA(), similarity.getEventB()),
+                        similarity.getScore(), EPSILON,
+                        "пара " + similarity.getEventA() + "-" + similarity.getEventB() + " после действия " + i);
+            }
+        }
+
+        for (long eventA = 0; eventA < 25; eventA++) {
+            for (long eventB = eventA + 1; eventB < 25; eventB++) {
+                assertEquals(bruteForceMinWeightsSum(eventA, eventB), service.get(eventA, eventB), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void weakerRepeatedActionDoesNotRecomputePairs() {
+        service.calculateWeight(action(1, 10, ActionTypeAvro.LIKE, 0));
+        service.calculateWeight(action(1, 20, ActionTypeAvro.LIKE, 1));
+        clearInvocations(kafkaTemplate);
+
+        service.calculateWeight(action(1, 10, ActionTypeAvro.VIEW, 2));
+
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        assertEquals(1.0, service.get(10, 20), EPSILON);
+    }
+
+    @Test
+    void batchSendsEachPairOnceWithFinalScore() {
+        List<UserActionAvro> batch = List.of(
+                action(1, 10, ActionTypeAvro.VIEW, 0),
+                action(1, 20, ActionTypeAvro.VIEW, 1),
+                action(2, 10, ActionTypeAvro.LIKE, 2),
+                action(2, 20, ActionTypeAvro.REGISTER, 3),
+                action(1, 20, ActionTypeAvro.LIKE, 4));
+
+        service.calculateWeights(batch);
+
+        List<EventSimilarityAvro> sent = sent();
+        assertEquals(1, sent.size());
+        assertEquals(bruteForceSimilarity(10, 20), sent.get(0).getScore(), EPSILON);
+        verify(kafkaTemplate).flush();
+    }
+
+    // Удалённое по неактивности мероприятие не собирает состояние заново из поздних действий
+    @Test
+    void lateActionForEvictedEventIsDropped() {
+        service.calculateWeight(action(1, 10, ActionTypeAvro.LIKE, 0));
+        service.calculateWeight(action(1, 20, ActionTypeAvro.LIKE, 5_000));
+        stateStore.evictInactiveEvents(1_000);
+        clearInvocations(kafkaTemplate);
+
+        service.calculateWeight(new UserActionAvro(2L, 10L, ActionTypeAvro.LIKE, Instant.ofEpochMilli(6_000)));
+        service.calculateWeight(new UserActionAvro(2L, 20L, ActionTypeAvro.LIKE, Instant.ofEpochMilli(7_000)));
+
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        assertEquals(0.0, stateStore.getEventWeightSum(10), EPSILON);
+        assertEquals(2.0, stateStore.getEventWeightSum(20), EPSILON);
+    }
+
+    private UserActionAvro action(long userId, long eventId, ActionTypeAvro type, long timestamp) {
+        weights.computeIfAbsent(userId, id -> new HashMap<>()).merge(eventId, WEIGHTS.get(type), Math::max);
+        return new UserActionAvro(userId, eventId, type, Instant.ofEpochMilli(timestamp));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<EventSimilarityAvro> sent() {
+        ArgumentCaptor<ProducerRecord<String, EventSimilarityAvro>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, atLeast(0)).send(captor.capture());
+        List<EventSimilarityAvro> values = captor.getAllValues().stream().map(ProducerRecord::value).toList();
+        values.forEach(value -> assertFalse(value.getEventA() >= value.getEventB(), "пара не упорядочена"));
+        return values;
+    }
+
+    private double bruteForceSimilarity(long eventA, long eventB) {
+        double denominator = Math.sqrt(bruteForceWeightSum(eventA) * bruteForceWeightSum(eventB));
+        return denominator > 0.0 ? bruteForceMinWeightsSum(eventA, eventB) / denominator : 0.0;
+    }
+
+    private double bruteForceWeightSum(long eventId) {
+        return weights.values().stream()
+                .mapToDouble(events -> events.getOrDefault(eventId, 0.0))
+                .sum();
+    }
+
+    private double bruteForceMinWeightsSum(long eventA, long eventB) {
+        return weights.values().stream()
+                .filter(events -> events.containsKey(eventA) && events.containsKey(eventB))
+                .mapToDouble(events -> Math.min(events.get(eventA), events.get(eventB)))
+                .sum();
+    }
+}
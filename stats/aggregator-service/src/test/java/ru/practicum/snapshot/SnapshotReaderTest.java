@@ -0,0 +1,74 @@
+package ru.practicum.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotReaderTest {
+
+    @TempDir
+    Path directory;
+
+    // Данных больше размера буфера (1 МБ), поэтому запись и чтение проходят через несколько сбросов буфера
+    @Test
+    void readsBackValuesSpanningSeveralBuffers() throws IOException {
+        Path file = directory.resolve("state.snapshot");
+        int count = 300_000;
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            writer.writeString("stats.user-actions.v1");
+            for (int i = 0; i < count; i++) {
+                writer.writeInt(i);
+                writer.writeLong(i * 31L);
+                writer.writeDouble(i / 7.0);
+            }
+            writer.finish();
+        }
+
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            assertEquals("stats.user-actions.v1", reader.readString());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, reader.readInt());
+                assertEquals(i * 31L, reader.readLong());
+                assertEquals(i / 7.0, reader.readDouble());
+            }
+            assertThrows(EOFException.class, reader::readInt);
+        }
+    }
+
+    @Test
+    void rejectsFileWithCorruptedContent() throws IOException {
+        Path file = directory.resolve("state.snapshot");
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            for (int i = 0; i < 1_000; i++) {
+                writer.writeLong(i);
+            }
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[100] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> new SnapshotReader(file));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = directory.resolve("state.snapshot");
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            writer.writeLong(42L);
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> new SnapshotReader(file));
+    }
+}
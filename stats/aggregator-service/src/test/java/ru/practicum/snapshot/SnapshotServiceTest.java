@@ -0,0 +1,87 @@
+package ru.practicum.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.state.SimilarityStateStore;
+import ru.practicum.state.TimeDecay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotServiceTest {
+    private static final double EPSILON = 1e-12;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresStateWrittenBySnapshot() {
+        SimilarityStateStore source = new SimilarityStateStore(4, 1_000);
+        SnapshotService writer = service(source);
+        source.mergeEventWeight(10, 1, 0.8, 1_000L, Math::max);
+        source.mergeEventWeight(20, 1, 1.0, 2_000L, Math::max);
+        source.mergeEventWeight(20, 2, 0.4, 3_000L, Math::max);
+        source.addMinWeightsSum(10, 20, 0.8);
+        source.mergeEventWeight(30, 3, 1.0, 10L, Math::max);
+        source.evictInactiveEvents(500L);
+        writer.markConsumed("stats.user-actions.v1", 0, 41L);
+        writer.snapshot();
+
+        SimilarityStateStore restored = new SimilarityStateStore(4, 1_000);
+        service(restored).restore();
+
+        assertEquals(0.8, restored.getEventWeight(10, 1), EPSILON);
+        assertEquals(1.0, restored.getEventWeight(20, 1), EPSILON);
+        assertEquals(0.4, restored.getEventWeight(20, 2), EPSILON);
+        assertEquals(1.4, restored.getEventWeightSum(20), EPSILON);
+        assertEquals(0.8, restored.getMinWeightsSum(10, 20), EPSILON);
+        // удалённое мероприятие остаётся удалённым и после восстановления
+        assertTrue(Double.isNaN(restored.mergeEventWeight(30, 4, 1.0, 20L, Math::max)));
+    }
+
+    // Повреждённый последний снимок пропускается, состояние берётся из предыдущего
+    @Test
+    void fallsBackToPreviousSnapshotWhenLatestIsCorrupted() throws Exception {
+        SimilarityStateStore source = new SimilarityStateStore(4, 1_000);
+        SnapshotService writer = service(source);
+        source.mergeEventWeight(10, 1, 0.4, 1_000L, Math::max);
+        writer.markConsumed("stats.user-actions.v1", 0, 1L);
+        writer.snapshot();
+        // имя файла снимка содержит время создания в миллисекундах
+        Thread.sleep(5);
+        source.mergeEventWeight(10, 1, 1.0, 2_000L, Math::max);
+        writer.markConsumed("stats.user-actions.v1", 0, 2L);
+        writer.snapshot();
+
+        List<Path> snapshots = snapshots();
+        assertEquals(2, snapshots.size());
+        Path latest = snapshots.get(snapshots.size() - 1);
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(latest, bytes);
+
+        SimilarityStateStore restored = new SimilarityStateStore(4, 1_000);
+        service(restored).restore();
+
+        assertEquals(0.4, restored.getEventWeight(10, 1), EPSILON);
+        assertEquals(0.4, restored.getEventWeightSum(10), EPSILON);
+    }
+
+    private SnapshotService service(SimilarityStateStore stateStore) {
+        return new SnapshotService(stateStore, new TimeDecay(false, 720), true, directory.toString(), 2);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".snapshot"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
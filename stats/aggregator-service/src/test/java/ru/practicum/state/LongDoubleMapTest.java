@@ -0,0 +1,110 @@
+package ru.practicum.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongDoubleMapTest {
+
+    @Test
+    void growsPastInitialCapacityWithoutLosingEntries() {
+        LongDoubleMap map = new LongDoubleMap();
+        int initialCapacity = map.capacity();
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key, key * 0.5);
+        }
+
+        assertTrue(map.capacity() > initialCapacity);
+        assertEquals(10_000, map.size());
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals(key * 0.5, map.get(key, -1.0));
+        }
+    }
+
+    @Test
+    void addToTreatsMissingValueAsZero() {
+        LongDoubleMap map = new LongDoubleMap();
+
+        assertEquals(1.5, map.addTo(7L, 1.5));
+        assertEquals(4.0, map.addTo(7L, 2.5));
+        assertEquals(1, map.size());
+    }
+
+    // Ключи с одинаковым остатком по маске попадают в одну цепочку пробирования:
+    // после удаления из её середины остальные ключи цепочки должны оставаться доступными
+    @Test
+    void removeKeepsProbeChainReachable() {
+        LongDoubleMap map = new LongDoubleMap(64);
+        int mask = map.capacity() - 1;
+        long[] collisions = new long[8];
+        int found = 0;
+        int home = LongDoubleMap.hash(1L) & mask;
+        for (long key = 1; found < collisions.length; key++) {
+            if ((LongDoubleMap.hash(key) & mask) == home) {
+                collisions[found++] = key;
+            }
+        }
+        for (long key : collisions) {
+            map.put(key, key);
+        }
+
+        assertTrue(map.remove(collisions[3]));
+        assertFalse(map.remove(collisions[3]));
+
+        assertFalse(map.containsKey(collisions[3]));
+        assertEquals(collisions.length - 1, map.size());
+        for (int i = 0; i < collisions.length; i++) {
+            if (i != 3) {
+                assertEquals(collisions[i], map.get(collisions[i], -1.0));
+            }
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(42);
+        LongDoubleMap map = new LongDoubleMap();
+        Map<Long, Double> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                double value = random.nextDouble();
+                map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        int visited = 0;
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.isSlotUsed(slot)) {
+                assertEquals(expected.get(map.keyAt(slot)), map.valueAt(slot));
+                visited++;
+            }
+        }
+        assertEquals(expected.size(), visited);
+    }
+
+    @Test
+    void clearEmptiesMapAndAllowsReuse() {
+        LongDoubleMap map = new LongDoubleMap();
+        for (long key = 0; key < 100; key++) {
+            map.put(key, 1.0);
+        }
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(5L));
+        map.put(5L, 2.0);
+        assertEquals(2.0, map.get(5L, 0.0));
+    }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectMapTest {
+
+    @Test
+    void growsPastInitialCapacityWithoutLosingEntries() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        int initialCapacity = map.capacity();
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key, "v" + key);
+        }
+
+        assertTrue(map.capacity() > initialCapacity);
+        assertEquals(10_000, map.size());
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals("v" + key, map.get(key));
+        }
+    }
+
+    @Test
+    void computeIfAbsentCreatesValueOnce() {
+        LongObjectMap<StringBuilder> map = new LongObjectMap<>();
+
+        StringBuilder first = map.computeIfAbsent(3L, key -> new StringBuilder());
+        StringBuilder second = map.computeIfAbsent(3L, key -> new StringBuilder());
+
+        assertSame(first, second);
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void rejectsNullValues() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    void removeKeepsProbeChainReachable() {
+        LongObjectMap<Long> map = new LongObjectMap<>(64);
+        int mask = map.capacity() - 1;
+        long[] collisions = new long[8];
+        int found = 0;
+        int home = LongDoubleMap.hash(1L) & mask;
+        for (long key = 1; found < collisions.length; key++) {
+            if ((LongDoubleMap.hash(key) & mask) == home) {
+                collisions[found++] = key;
+            }
+        }
+        for (long key : collisions) {
+            map.put(key, key);
+        }
+
+        assertEquals(collisions[0], map.remove(collisions[0]));
+        assertNull(map.remove(collisions[0]));
+
+        assertNull(map.get(collisions[0]));
+        assertEquals(collisions.length - 1, map.size());
+        for (int i = 1; i < collisions.length; i++) {
+            assertEquals(collisions[i], map.get(collisions[i]));
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(7);
+        LongObjectMap<Integer> map = new LongObjectMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        int visited = 0;
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.valueAt(slot) != null) {
+                assertEquals(expected.get(map.keyAt(slot)), map.valueAt(slot));
+                visited++;
+            }
+        }
+        assertEquals(expected.size(), visited);
+    }
+}
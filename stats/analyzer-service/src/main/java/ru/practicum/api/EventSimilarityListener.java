@@ -5,20 +5,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.graph.SimilarityGraph;
 import ru.practicum.service.EventSimilarityService;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class EventSimilarityListener {
 
     private final EventSimilarityService service;
+    private final SimilarityGraph similarityGraph;
 
     @KafkaListener(topics = "${kafka.topic-sums}",
-            containerFactory = "userActionListenerContainerFactory",
+            containerFactory = "eventSimilarityListenerContainerFactory",
             autoStartup = "true")
-    public void listen(EventSimilarityAvro message) {
-        log.info("Получено сообщение: {}", message.toString());
-        service.saveEventSimilarity(message);
+    public void listen(List<EventSimilarityAvro> messages) {
+        log.info("Получена пачка из {} сообщений", messages.size());
+        // граф обновляется только после успешной записи и теми же последними по паре оценками, что ушли в БД;
+        // устаревшие между пачками оценки отбрасываются по времени и в БД, и в графе
+        similarityGraph.update(service.saveEventSimilarities(messages));
     }
 }
@@ -5,20 +5,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.interaction.InteractionTotalsCache;
+import ru.practicum.profile.UserProfileCache;
 import ru.practicum.service.UserActionService;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class UserActionListener {
 
-    private UserActionService service;
+    private final UserActionService service;
+    private final UserProfileCache userProfileCache;
+    private final InteractionTotalsCache interactionTotalsCache;
 
     @KafkaListener(topics = "${kafka.topic}",
-            containerFactory = "eventSimilarityListenerContainerFactory",
+            containerFactory = "userActionListenerContainerFactory",
             autoStartup = "true")
-    public void listen(UserActionAvro message) {
-        log.info("Получено сообщение: {}", message.toString());
-        service.saveActionType(message);
+    public void listen(List<UserActionAvro> messages) {
+        log.info("Получена пачка из {} сообщений", messages.size());
+        // обе обёртки охватывают сохранение, чтобы параллельная загрузка из БД не закэшировала состояние до пачки
+        interactionTotalsCache.apply(() -> userProfileCache.apply(messages, () -> service.saveActionTypes(messages)));
     }
 }
@@ -1,6 +1,8 @@
 package ru.practicum.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
 import org.apache.kafka.common.serialization.VoidDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -9,8 +11,10 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.serialize.AvroDeserializer;
 import ru.practicum.serialize.EventSimilarityDeserializer;
 import ru.practicum.serialize.UserActionDeserializer;
 
@@ -26,25 +30,38 @@ public class KafkaConsumerConfig {
     private String clientId;
     @Value("${kafka.group-id}")
     private String groupId;
-
+    // Пачка действий пользователей: не больше batch-size записей или batch-max-wait-ms ожидания
+    @Value("${analyzer.user-action.batch-size:500}")
+    private int userActionBatchSize;
+    @Value("${analyzer.user-action.batch-max-wait-ms:500}")
+    private int userActionBatchMaxWaitMs;
+    // Переиспользование экземпляров записей между poll; слушатели не хранят записи после пачки
+    @Value("${analyzer.kafka.reuse-records:false}")
+    private boolean reuseRecords;
 
     @Bean
-    public ConsumerFactory<String, UserActionAvro> userActionConsumerFactory() {
-        Map<String, Object> props = createConsumerConfig(UserActionDeserializer.class.getName());
+    public ConsumerFactory<Long, UserActionAvro> userActionConsumerFactory() {
+        Map<String, Object> props = createConsumerConfig(LongDeserializer.class, UserActionDeserializer.class.getName());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, userActionBatchSize);
+        // Брокер придерживает ответ, пока не наберётся объём, но не дольше batch-max-wait-ms
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 64 * 1024);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, userActionBatchMaxWaitMs);
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, UserActionAvro> userActionListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, UserActionAvro> factory =
+    public ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> userActionListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(userActionConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
         return factory;
     }
 
     @Bean
     public ConsumerFactory<String, EventSimilarityAvro> eventSimilarityConsumerFactory() {
-        Map<String, Object> props = createConsumerConfig(EventSimilarityDeserializer.class.getName());
+        Map<String, Object> props = createConsumerConfig(VoidDeserializer.class, EventSimilarityDeserializer.class.getName());
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
@@ -53,20 +70,25 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, EventSimilarityAvro> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(eventSimilarityConsumerFactory());
+        // Сходства пишутся в БД пачками: один poll — один batch-upsert и один коммит оффсетов
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
         return factory;
     }
 
     // Общий метод для создания конфигурации потребителя
-    private Map<String, Object> createConsumerConfig(String valueDeserializerClass) {
+    private Map<String, Object> createConsumerConfig(Class<? extends Deserializer<?>> keyDeserializerClass,
+                                                     String valueDeserializerClass) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, VoidDeserializer.class);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, keyDeserializerClass);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, valueDeserializerClass);
         // Дополнительные настройки для надёжности
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"); // Начинать с начала, если нет оффсета
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500); // Ограничение записей за один poll
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false); // Ручное управление коммитами
+        props.put(AvroDeserializer.REUSE_RECORDS_CONFIG, reuseRecords);
         return props;
     }
 }
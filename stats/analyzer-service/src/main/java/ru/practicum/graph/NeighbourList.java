@@ -0,0 +1,94 @@
+package ru.practicum.graph;
+
+// Ограниченный список ближайших соседей мероприятия в параллельных массивах,
+// упорядоченный по убыванию сходства. Синхронизация — на самом списке.
+// Это приближение top-K: отвергнутые или вытесненные кандидаты не запоминаются. Если оценка соседа
+// из списка затем снижается, более сильный ранее отвергнутый кандидат не возвращается, пока по его паре
+// не придёт новая оценка (см. NeighbourListTest). Пока оценки пар только растут, список точен.
+class NeighbourList {
+    private final long[] eventIds;
+    private final double[] scores;
+    private final long[] eventTimes;
+    private int size;
+
+    NeighbourList(int maxNeighbours) {
+        this.eventIds = new long[maxNeighbours];
+        this.scores = new double[maxNeighbours];
+        this.eventTimes = new long[maxNeighbours];
+    }
+
+    // Обновляет оценку соседа или вставляет его, вытесняя самого слабого при заполненном списке.
+    // Оценка старше уже хранимой для соседа отбрасывается
+    synchronized void update(long eventId, double score, long eventTime) {
+        int index = indexOf(eventId);
+        if (index >= 0 && eventTime < eventTimes[index]) {
+            return;
+        }
+        if (index < 0) {
+            if (size < eventIds.length) {
+                index = size++;
+            } else if (score > scores[size - 1]) {
+                index = size - 1;
+            } else {
+                return;
+            }
+            eventIds[index] = eventId;
+        }
+        scores[index] = score;
+        eventTimes[index] = eventTime;
+        // восстанавливаем порядок сдвигом элемента вверх или вниз
+        while (index > 0 && scores[index - 1] < scores[index]) {
+            swap(index - 1, index);
+            index--;
+        }
+        while (index < size - 1 && scores[index + 1] > scores[index]) {
+            swap(index, index + 1);
+            index++;
+        }
+    }
+
+    synchronized void remove(long eventId) {
+        int index = indexOf(eventId);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(eventIds, index + 1, eventIds, index, size - index - 1);
+        System.arraycopy(scores, index + 1, scores, index, size - index - 1);
+        System.arraycopy(eventTimes, index + 1, eventTimes, index, size - index - 1);
+        size--;
+    }
+
+    synchronized double score(long eventId, double defaultValue) {
+        int index = indexOf(eventId);
+        return index >= 0 ? scores[index] : defaultValue;
+    }
+
+    synchronized Neighbours snapshot() {
+        long[] ids = new long[size];
+        double[] values = new double[size];
+        System.arraycopy(eventIds, 0, ids, 0, size);
+        System.arraycopy(scores, 0, values, 0, size);
+        return new Neighbours(ids, values);
+    }
+
+    private int indexOf(long eventId) {
+        for (int i = 0; i < size; i++) {
+            if (eventIds[i] == eventId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void swap(int i, int j) {
+        long id = eventIds[i];
+        eventIds[i] = eventIds[j];
+        eventIds[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        long eventTime = eventTimes[i];
+        eventTimes[i] = eventTimes[j];
+        eventTimes[j] = eventTime;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.graph;
+
+// Неизменяемый снимок соседей мероприятия, по убыванию сходства
+public record Neighbours(long[] eventIds, double[] scores) {
+    public static final Neighbours EMPTY = new Neighbours(new long[0], new double[0]);
+
+    public int size() {
+        return eventIds.length;
+    }
+
+    public long eventId(int index) {
+        return eventIds[index];
+    }
+
+    public double score(int index) {
+        return scores[index];
+    }
+}
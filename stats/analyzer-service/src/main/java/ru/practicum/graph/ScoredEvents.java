@@ -0,0 +1,31 @@
+package ru.practicum.graph;
+
+// Результат ранжирования: мероприятия с оценками, читаемые по индексу без создания объектов на элемент
+public interface ScoredEvents {
+    ScoredEvents EMPTY = of(new long[0], new double[0]);
+
+    int size();
+
+    long idAt(int index);
+
+    double scoreAt(int index);
+
+    static ScoredEvents of(long[] ids, double[] scores) {
+        return new ScoredEvents() {
+            @Override
+            public int size() {
+                return ids.length;
+            }
+
+            @Override
+            public long idAt(int index) {
+                return ids[index];
+            }
+
+            @Override
+            public double scoreAt(int index) {
+                return scores[index];
+            }
+        };
+    }
+}
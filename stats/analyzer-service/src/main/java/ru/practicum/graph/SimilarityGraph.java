@@ -0,0 +1,75 @@
+package ru.practicum.graph;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EventSimilarity;
+import ru.practicum.repository.EventSimilarityRepository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Граф сходства мероприятий в памяти: для каждого мероприятия хранится не более maxNeighbours
+// ближайших соседей. Прогревается из event_similarity при старте и пополняется слушателем Kafka,
+// поэтому запросы рекомендаций обслуживаются без обращения к БД.
+@Slf4j
+@Component
+public class SimilarityGraph {
+
+    private final EventSimilarityRepository repository;
+    private final int maxNeighbours;
+    private final Map<Long, NeighbourList> neighbours = new ConcurrentHashMap<>();
+
+    public SimilarityGraph(EventSimilarityRepository repository,
+                           @Value("${analyzer.similarity-graph.max-neighbours:100}") int maxNeighbours) {
+        this.repository = repository;
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        long started = System.currentTimeMillis();
+        long[] loaded = new long[1];
+        repository.forEachSimilarity((eventA, eventB, score, eventTime) -> {
+            update(eventA, eventB, score, eventTime);
+            loaded[0]++;
+        });
+        log.info("Граф сходства загружен из БД: {} пар, {} мероприятий за {} мс",
+                loaded[0], neighbours.size(), System.currentTimeMillis() - started);
+    }
+
+    public void update(Collection<EventSimilarity> similarities) {
+        for (EventSimilarity similarity : similarities) {
+            update(similarity.getEventA(), similarity.getEventB(), similarity.getScore(),
+                    similarity.getEventTime().toEpochMilli());
+        }
+    }
+
+    // Оценка старше уже сохранённой для пары игнорируется, как и в upsert event_similarity
+    public void update(long eventA, long eventB, double score, long eventTime) {
+        neighboursOf(eventA).update(eventB, score, eventTime);
+        neighboursOf(eventB).update(eventA, score, eventTime);
+    }
+
+    public Neighbours getNeighbours(long eventId) {
+        NeighbourList list = neighbours.get(eventId);
+        return list == null ? Neighbours.EMPTY : list.snapshot();
+    }
+
+    // Сходство пары, если она входит в top-K хотя бы одного из мероприятий
+    public double getScore(long eventA, long eventB) {
+        NeighbourList list = neighbours.get(eventA);
+        double score = list == null ? Double.NaN : list.score(eventB, Double.NaN);
+        if (Double.isNaN(score)) {
+            list = neighbours.get(eventB);
+            score = list == null ? 0.0 : list.score(eventA, 0.0);
+        }
+        return score;
+    }
+
+    private NeighbourList neighboursOf(long eventId) {
+        return neighbours.computeIfAbsent(eventId, id -> new NeighbourList(maxNeighbours));
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.graph;
+
+import java.util.Arrays;
+
+// Отбор k лучших кандидатов за O(n log k): min-куча над параллельными массивами id и оценок.
+// После sortDescending() элементы доступны по индексу в порядке убывания оценки.
+public final class TopKSelector implements ScoredEvents {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int limit;
+    private long[] ids;
+    private double[] scores;
+    private int size;
+
+    public TopKSelector(long limit) {
+        this.limit = (int) Math.max(0, Math.min(limit, Integer.MAX_VALUE - 8));
+        int capacity = Math.min(this.limit, INITIAL_CAPACITY);
+        this.ids = new long[capacity];
+        this.scores = new double[capacity];
+    }
+
+    public void offer(long id, double score) {
+        if (size < limit) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(limit, Math.max(INITIAL_CAPACITY, (long) size * 2));
+                ids = Arrays.copyOf(ids, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (limit > 0 && score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    // Пирамидальная сортировка на месте: минимум уходит в конец, получаем порядок по убыванию
+    public void sortDescending() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public double scoreAt(int index) {
+        return scores[index];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < end && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < end && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -3,6 +3,7 @@ package ru.practicum.grpc;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
+import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.practicum.ewm.grpc.stats.analyzer.RecommendationsControllerGrpc;
@@ -10,10 +11,11 @@ import ru.practicum.ewm.grpc.stats.recomendations.InteractionsCountRequestProto;
 import ru.practicum.ewm.grpc.stats.recomendations.RecommendedEventProto;
 import ru.practicum.ewm.grpc.stats.recomendations.SimilarEventsRequestProto;
 import ru.practicum.ewm.grpc.stats.recomendations.UserPredictionsRequestProto;
+import ru.practicum.graph.ScoredEvents;
 import ru.practicum.service.EventSimilarityService;
 
-import java.util.List;
 
+@GrpcService
 @RequiredArgsConstructor
 public class RecommendationsController extends RecommendationsControllerGrpc.RecommendationsControllerImplBase {
 
@@ -24,10 +26,9 @@ public class RecommendationsController extends RecommendationsControllerGrpc.Rec
     public void getSimilarEvents(SimilarEventsRequestProto request, StreamObserver<RecommendedEventProto> responseObserver) {
         try {
             log.info("Получение похожих событий для запроса: {}", request);
-            List<RecommendedEventProto> events = service.getSimilarEvents(request);
-            events.forEach(responseObserver::onNext);
-            responseObserver.onCompleted();
-            log.debug("Успешно обработан запрос на похожие события, возвращено {} событий", events.size());
+            ScoredEvents events = service.getSimilarEvents(request);
+            log.debug("Запрос на похожие события обработан, отправляется {} событий", events.size());
+            ScoredEventsStreamer.stream(responseObserver, events);
         } catch (IllegalArgumentException e) {
             log.warn("Некорректный запрос на получение похожих событий: {}", request, e);
             responseObserver.onError(Status.INVALID_ARGUMENT
@@ -47,10 +48,9 @@ public class RecommendationsController extends RecommendationsControllerGrpc.Rec
     public void getInteractionsCount(InteractionsCountRequestProto request, StreamObserver<RecommendedEventProto> responseObserver) {
         try {
             log.info("Получение количества взаимодействий для запроса: {}", request);
-            List<RecommendedEventProto> events = service.getInteractionsCount(request);
-            events.forEach(responseObserver::onNext);
-            responseObserver.onCompleted();
-            log.debug("Успешно обработан запрос на количество взаимодействий, возвращено {} событий", events.size());
+            ScoredEvents events = service.getInteractionsCount(request);
+            log.debug("Запрос на количество взаимодействий обработан, отправляется {} событий", events.size());
+            ScoredEventsStreamer.stream(responseObserver, events);
         } catch (IllegalArgumentException e) {
             log.warn("Некорректный запрос на получение количества взаимодействий: {}", request, e);
             responseObserver.onError(Status.INVALID_ARGUMENT
@@ -70,10 +70,9 @@ public class RecommendationsController extends RecommendationsControllerGrpc.Rec
     public void getRecommendationsForUser(UserPredictionsRequestProto request, StreamObserver<RecommendedEventProto> responseObserver) {
         try {
             log.info("Получение рекомендаций для пользователя по запросу: {}", request);
-            List<RecommendedEventProto> events = service.getRecommendationsForUser(request);
-            events.forEach(responseObserver::onNext);
-            responseObserver.onCompleted();
-            log.debug("Успешно обработан запрос на рекомендации для пользователя, возвращено {} событий", events.size());
+            ScoredEvents events = service.getRecommendationsForUser(request);
+            log.debug("Запрос на рекомендации для пользователя обработан, отправляется {} событий", events.size());
+            ScoredEventsStreamer.stream(responseObserver, events);
         } catch (IllegalArgumentException e) {
             log.warn("Некорректный запрос на получение рекомендаций для пользователя: {}", request, e);
             responseObserver.onError(Status.INVALID_ARGUMENT
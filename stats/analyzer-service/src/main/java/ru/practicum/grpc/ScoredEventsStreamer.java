@@ -0,0 +1,55 @@
+package ru.practicum.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.ewm.grpc.stats.recomendations.RecommendedEventProto;
+import ru.practicum.graph.ScoredEvents;
+
+// Отдаёт результат в поток по мере готовности клиента: пока isReady() — отправляем следующий элемент,
+// иначе ждём onReady. Протобуф создаётся непосредственно перед отправкой, весь ответ в памяти не копится.
+@Slf4j
+final class ScoredEventsStreamer implements Runnable {
+    private final ServerCallStreamObserver<RecommendedEventProto> observer;
+    private final ScoredEvents events;
+    private int next;
+    private boolean done;
+
+    private ScoredEventsStreamer(ServerCallStreamObserver<RecommendedEventProto> observer, ScoredEvents events) {
+        this.observer = observer;
+        this.events = events;
+    }
+
+    // Должен вызываться из обработчика вызова: onReadyHandler можно установить только до его возврата
+    static void stream(StreamObserver<RecommendedEventProto> responseObserver, ScoredEvents events) {
+        ServerCallStreamObserver<RecommendedEventProto> observer =
+                (ServerCallStreamObserver<RecommendedEventProto>) responseObserver;
+        ScoredEventsStreamer streamer = new ScoredEventsStreamer(observer, events);
+        observer.setOnCancelHandler(streamer::cancel);
+        observer.setOnReadyHandler(streamer);
+        streamer.run();
+    }
+
+    @Override
+    public synchronized void run() {
+        if (done) {
+            return;
+        }
+        while (next < events.size() && observer.isReady()) {
+            observer.onNext(RecommendedEventProto.newBuilder()
+                    .setEventId(events.idAt(next))
+                    .setScore(events.scoreAt(next))
+                    .build());
+            next++;
+        }
+        if (next == events.size()) {
+            done = true;
+            observer.onCompleted();
+        }
+    }
+
+    private synchronized void cancel() {
+        done = true;
+        log.debug("Клиент отменил вызов, отправлено {} из {} элементов", next, events.size());
+    }
+}
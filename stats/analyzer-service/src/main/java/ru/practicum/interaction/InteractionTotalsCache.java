@@ -0,0 +1,138 @@
+package ru.practicum.interaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.service.UserActionService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Кэш сумм весов взаимодействий по мероприятиям. Промахи догружаются одним сгруппированным запросом
+// на весь запрос, а слушатель действий добавляет к закэшированным суммам прирост после каждой пачки.
+// TTL ограничивает расхождение, когда часть партиций обрабатывают другие экземпляры анализатора.
+// Загрузка из БД кэшируется, только если за время чтения не начиналось и не шло сохранение пачки:
+// иначе прочитанная сумма может не содержать пачку или содержать её дважды после apply.
+@Slf4j
+@Component
+public class InteractionTotalsCache {
+
+    private final UserActionService userActionService;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Long, Entry> totals = new ConcurrentHashMap<>();
+    // записи в порядке истечения: TTL у всех одинаковый, поэтому порядок вставки совпадает с ним
+    private final Queue<Expiry> expiryOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger applying = new AtomicInteger();
+
+    public InteractionTotalsCache(UserActionService userActionService,
+                                  @Value("${analyzer.interaction-totals.max-size:100000}") int maxSize,
+                                  @Value("${analyzer.interaction-totals.ttl-ms:60000}") long ttlMillis) {
+        this.userActionService = userActionService;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public double[] getTotals(long[] eventIds) {
+        long now = System.currentTimeMillis();
+        double[] result = new double[eventIds.length];
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < eventIds.length; i++) {
+            Entry entry = totals.get(eventIds[i]);
+            if (entry != null && entry.expiresAt > now) {
+                result[i] = entry.total;
+            } else {
+                missing.add(eventIds[i]);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long loadVersion = version.get();
+        boolean cacheable = applying.get() == 0;
+        Map<Long, Double> loaded = userActionService.getWeightSumsByEventIds(missing);
+        for (int i = 0; i < eventIds.length; i++) {
+            if (loaded.containsKey(eventIds[i])) {
+                result[i] = loaded.get(eventIds[i]);
+            }
+        }
+        if (cacheable && version.get() == loadVersion) {
+            store(missing, loaded, loadVersion, now);
+        }
+        return result;
+    }
+
+    // Сохраняет пачку и применяет её прирост к закэшированным суммам. Незакэшированные мероприятия
+    // пропускаем — их сумма будет прочитана из БД уже с учётом пачки
+    public Map<Long, Double> apply(Supplier<Map<Long, Double>> save) {
+        applying.incrementAndGet();
+        version.incrementAndGet();
+        try {
+            Map<Long, Double> deltas = save.get();
+            deltas.forEach((eventId, delta) -> totals.computeIfPresent(eventId, (id, entry) -> {
+                entry.total += delta;
+                return entry;
+            }));
+            return deltas;
+        } finally {
+            version.incrementAndGet();
+            applying.decrementAndGet();
+        }
+    }
+
+    private void store(List<Long> eventIds, Map<Long, Double> loaded, long loadVersion, long now) {
+        removeExpired(now);
+        if (totals.size() + eventIds.size() > maxSize) {
+            evict(eventIds.size());
+        }
+        for (Long eventId : eventIds) {
+            Entry entry = new Entry(loaded.getOrDefault(eventId, 0.0), now + ttlMillis);
+            // версия перепроверяется под блокировкой ключа: apply, начавшийся после проверки, увидит запись
+            Entry stored = totals.compute(eventId, (id, current) ->
+                    version.get() == loadVersion ? entry : current);
+            if (stored == entry) {
+                expiryOrder.add(new Expiry(eventId, entry));
+            }
+        }
+    }
+
+    private void removeExpired(long now) {
+        Expiry head;
+        while ((head = expiryOrder.peek()) != null && head.entry.expiresAt <= now) {
+            if (expiryOrder.remove(head)) {
+                totals.remove(head.eventId, head.entry);
+            }
+        }
+    }
+
+    // вытесняем записи, которые истекут раньше остальных
+    private void evict(int required) {
+        Expiry head;
+        while (totals.size() + required > maxSize && (head = expiryOrder.poll()) != null) {
+            totals.remove(head.eventId, head.entry);
+        }
+        log.debug("Кэш сумм взаимодействий после вытеснения: {} записей", totals.size());
+    }
+
+    private record Expiry(Long eventId, Entry entry) {
+    }
+
+    private static final class Entry {
+        private volatile double total;
+        private final long expiresAt;
+
+        private Entry(double total, long expiresAt) {
+            this.total = total;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
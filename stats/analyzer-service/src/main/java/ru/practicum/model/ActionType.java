@@ -1,7 +1,17 @@
 package ru.practicum.model;
 
 public enum ActionType {
-    VIEW,
-    REGISTER,
-    LIKE
+    VIEW(0.4),
+    REGISTER(0.8),
+    LIKE(1.0);
+
+    private final double weight;
+
+    ActionType(double weight) {
+        this.weight = weight;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
 }
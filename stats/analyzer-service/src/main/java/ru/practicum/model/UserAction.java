@@ -1,6 +1,10 @@
 package ru.practicum.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -18,9 +22,11 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class UserAction {
     @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private Long userId;
     private Long eventId;
+    @Enumerated(EnumType.STRING)
     private ActionType actionType;
     private Instant actionTime;
 
@@ -0,0 +1,106 @@
+package ru.practicum.profile;
+
+import ru.practicum.model.UserAction;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Неизменяемый профиль взаимодействий пользователя: отсортированные id мероприятий
+// и параллельные массивы весов и времени последнего действия (epoch millis)
+public final class UserProfile {
+    public static final UserProfile EMPTY = new UserProfile(new long[0], new double[0], new long[0]);
+
+    private final long[] eventIds;
+    private final double[] weights;
+    private final long[] actionTimes;
+
+    private UserProfile(long[] eventIds, double[] weights, long[] actionTimes) {
+        this.eventIds = eventIds;
+        this.weights = weights;
+        this.actionTimes = actionTimes;
+    }
+
+    public static UserProfile of(List<UserAction> actions) {
+        UserProfile profile = EMPTY;
+        for (UserAction action : actions) {
+            profile = profile.with(action.getEventId(), action.getActionType().getWeight(),
+                    action.getActionTime().toEpochMilli());
+        }
+        return profile;
+    }
+
+    // Копия профиля с учётом действия: вес не уменьшается, время берётся наибольшее
+    public UserProfile with(long eventId, double weight, long actionTime) {
+        int index = Arrays.binarySearch(eventIds, eventId);
+        if (index >= 0) {
+            if (weight <= weights[index] && actionTime <= actionTimes[index]) {
+                return this;
+            }
+            double[] newWeights = weights.clone();
+            long[] newTimes = actionTimes.clone();
+            newWeights[index] = Math.max(weight, weights[index]);
+            newTimes[index] = Math.max(actionTime, actionTimes[index]);
+            return new UserProfile(eventIds, newWeights, newTimes);
+        }
+        int position = -index - 1;
+        return new UserProfile(insert(eventIds, position, eventId), insert(weights, position, weight),
+                insert(actionTimes, position, actionTime));
+    }
+
+    public boolean contains(long eventId) {
+        return Arrays.binarySearch(eventIds, eventId) >= 0;
+    }
+
+    public double weight(long eventId) {
+        int index = Arrays.binarySearch(eventIds, eventId);
+        return index >= 0 ? weights[index] : 0.0;
+    }
+
+    // Вес действия, затухший экспоненциально по его давности на момент nowMillis (lambda — на миллисекунду)
+    public double decayedWeight(long eventId, long nowMillis, double lambda) {
+        int index = Arrays.binarySearch(eventIds, eventId);
+        if (index < 0) {
+            return 0.0;
+        }
+        if (lambda == 0.0) {
+            return weights[index];
+        }
+        return weights[index] * Math.exp(-lambda * Math.max(0L, nowMillis - actionTimes[index]));
+    }
+
+    public boolean isEmpty() {
+        return eventIds.length == 0;
+    }
+
+    public int size() {
+        return eventIds.length;
+    }
+
+    public long eventIdAt(int index) {
+        return eventIds[index];
+    }
+
+    public double weightAt(int index) {
+        return weights[index];
+    }
+
+    public long actionTimeAt(int index) {
+        return actionTimes[index];
+    }
+
+    private static long[] insert(long[] source, int position, long value) {
+        long[] result = new long[source.length + 1];
+        System.arraycopy(source, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(source, position, result, position + 1, source.length - position);
+        return result;
+    }
+
+    private static double[] insert(double[] source, int position, double value) {
+        double[] result = new double[source.length + 1];
+        System.arraycopy(source, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(source, position, result, position + 1, source.length - position);
+        return result;
+    }
+}
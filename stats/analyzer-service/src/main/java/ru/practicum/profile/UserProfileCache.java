@@ -0,0 +1,97 @@
+package ru.practicum.profile;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.model.ActionType;
+import ru.practicum.service.UserActionService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Кэш профилей пользователей для запросов рекомендаций с вытеснением по TTL и размеру.
+// Слушатель действий дописывает новые действия в уже закэшированные профили после записи в БД;
+// отсутствующие профили загружаются из БД при первом запросе.
+// Записи хранятся в LinkedHashMap в порядке доступа: при переполнении вытесняется самая давно
+// использованная за O(1). Загрузка профиля из БД выполняется вне блокировки и кэшируется, только если
+// за время чтения не начиналось и не шло сохранение пачки (как в InteractionTotalsCache).
+@Component
+public class UserProfileCache {
+
+    private final UserActionService userActionService;
+    private final long ttlMillis;
+    private final Map<Long, Entry> profiles;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger applying = new AtomicInteger();
+
+    public UserProfileCache(UserActionService userActionService,
+                            @Value("${analyzer.user-profile-cache.max-size:100000}") int maxSize,
+                            @Value("${analyzer.user-profile-cache.ttl-ms:600000}") long ttlMillis) {
+        this.userActionService = userActionService;
+        this.ttlMillis = ttlMillis;
+        this.profiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public UserProfile get(long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (profiles) {
+            Entry entry = profiles.get(userId);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.profile;
+            }
+        }
+        long loadVersion = version.get();
+        boolean cacheable = applying.get() == 0;
+        UserProfile profile = UserProfile.of(userActionService.getUserActionByUserId(userId));
+        synchronized (profiles) {
+            // apply меняет кэш под той же блокировкой, поэтому пачка, начатая после проверки, увидит запись
+            if (cacheable && version.get() == loadVersion) {
+                profiles.put(userId, new Entry(profile, now + ttlMillis));
+            }
+        }
+        return profile;
+    }
+
+    // Сохраняет пачку и дописывает её действия в закэшированные профили; незакэшированных пользователей
+    // пропускаем — их профиль будет прочитан из БД уже с новыми действиями
+    public <T> T apply(List<UserActionAvro> actions, Supplier<T> save) {
+        applying.incrementAndGet();
+        version.incrementAndGet();
+        try {
+            T result = save.get();
+            synchronized (profiles) {
+                for (UserActionAvro action : actions) {
+                    double weight = ActionType.valueOf(action.getActionType().name()).getWeight();
+                    Entry entry = profiles.get(action.getUserId());
+                    if (entry != null) {
+                        entry.profile = entry.profile.with(action.getEventId(), weight,
+                                action.getTimestamp().toEpochMilli());
+                    }
+                }
+            }
+            return result;
+        } finally {
+            version.incrementAndGet();
+            applying.decrementAndGet();
+        }
+    }
+
+    private static final class Entry {
+        private UserProfile profile;
+        private final long expiresAt;
+
+        private Entry(UserProfile profile, long expiresAt) {
+            this.profile = profile;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
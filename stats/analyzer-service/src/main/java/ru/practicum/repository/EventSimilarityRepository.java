@@ -5,6 +5,6 @@ import ru.practicum.model.EventSimilarity;
 
 import java.util.List;
 
-public interface EventSimilarityRepository extends JpaRepository<EventSimilarity, Long> {
+public interface EventSimilarityRepository extends JpaRepository<EventSimilarity, Long>, EventSimilarityRepositoryCustom {
     List<EventSimilarity> findByEventAOrEventB(Long eventA, Long eventB);
 }
@@ -0,0 +1,20 @@
+package ru.practicum.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.EventSimilarity;
+
+import java.util.Collection;
+
+public interface EventSimilarityRepositoryCustom {
+    // Пакетная вставка с обновлением оценки существующей пары (event_a, event_b)
+    void upsertAll(Collection<EventSimilarity> similarities);
+
+    // Потоковый обход всех пар без создания сущностей; транзакция нужна, чтобы драйвер читал курсором
+    @Transactional(readOnly = true)
+    void forEachSimilarity(SimilarityConsumer consumer);
+
+    @FunctionalInterface
+    interface SimilarityConsumer {
+        void accept(long eventA, long eventB, double score, long eventTime);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.model.EventSimilarity;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class EventSimilarityRepositoryImpl implements EventSimilarityRepositoryCustom {
+    // Более старая оценка не перетирает более свежую, если сообщения пришли не по порядку
+    private static final String UPSERT_SQL = """
+            insert into event_similarity (event_a, event_b, score, event_time)
+            values (?, ?, ?, ?)
+            on conflict (event_a, event_b) do update
+                set score      = excluded.score,
+                    event_time = excluded.event_time
+            where event_similarity.event_time <= excluded.event_time
+            """;
+    private static final String SELECT_ALL_SQL = "select event_a, event_b, score, event_time from event_similarity";
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<EventSimilarity> similarities) {
+        if (similarities.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, similarities, similarities.size(), (ps, similarity) -> {
+            ps.setLong(1, similarity.getEventA());
+            ps.setLong(2, similarity.getEventB());
+            ps.setDouble(3, similarity.getScore());
+            ps.setTimestamp(4, Timestamp.from(similarity.getEventTime()));
+        });
+    }
+
+    @Override
+    public void forEachSimilarity(SimilarityConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getLong(2), rs.getDouble(3),
+                rs.getTimestamp(4).getTime()));
+    }
+}
@@ -5,7 +5,7 @@ import ru.practicum.model.UserAction;
 
 import java.util.List;
 
-public interface UserActionRepository extends JpaRepository<UserAction, Long> {
+public interface UserActionRepository extends JpaRepository<UserAction, Long>, UserActionRepositoryCustom {
     List<UserAction> findAllByUserId(Long userId);
 
     List<UserAction> findAllByEventId(Long eventId);
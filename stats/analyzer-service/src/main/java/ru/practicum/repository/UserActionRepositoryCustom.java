@@ -0,0 +1,15 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.UserAction;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface UserActionRepositoryCustom {
+    // Один многострочный upsert: по паре (user_id, event_id) хранится действие с наибольшим весом.
+    // Возвращает изменение суммы весов по каждому затронутому мероприятию
+    Map<Long, Double> upsertAll(Collection<UserAction> userActions);
+
+    // Сумма весов действий по каждому мероприятию одним сгруппированным запросом
+    Map<Long, Double> sumWeightsByEventIds(Collection<Long> eventIds);
+}
@@ -0,0 +1,107 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.model.ActionType;
+import ru.practicum.model.UserAction;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class UserActionRepositoryImpl implements UserActionRepositoryCustom {
+    // Вся пачка передаётся массивами и разворачивается через unnest — один запрос на любой размер пачки.
+    // Пары в пачке должны быть уникальны, иначе ON CONFLICT затронет строку дважды.
+    // Все части запроса видят один снимок, поэтому previous содержит типы действий до обновления,
+    // а итоговый select — прирост суммы весов по мероприятиям.
+    private static final String UPSERT_SQL = """
+            with input (user_id, event_id, action_type, action_time) as (
+                select * from unnest(?::int8[], ?::int8[], ?::varchar[], ?::timestamp[])),
+            previous as (
+                select ua.user_id, ua.event_id, ua.action_type
+                from user_action ua
+                join input i on ua.user_id = i.user_id and ua.event_id = i.event_id),
+            upserted as (
+                insert into user_action (user_id, event_id, action_type, action_time)
+                select * from input
+                on conflict (user_id, event_id) do update
+                    set action_type = case
+                                          when %1$s > %2$s then excluded.action_type
+                                          else user_action.action_type end,
+                        action_time = greatest(user_action.action_time, excluded.action_time)
+                returning user_id, event_id, action_type)
+            select u.event_id, sum(%3$s - coalesce(%4$s, 0)) as delta
+            from upserted u
+            left join previous p on p.user_id = u.user_id and p.event_id = u.event_id
+            group by u.event_id
+            having sum(%3$s - coalesce(%4$s, 0)) <> 0
+            """.formatted(rankOf("excluded.action_type"), rankOf("user_action.action_type"),
+            weightOf("u.action_type"), weightOf("p.action_type"));
+    private static final String SUM_WEIGHTS_SQL = """
+            select event_id, sum(%s) as total
+            from user_action
+            where event_id = any(?::int8[])
+            group by event_id
+            """.formatted(weightOf("action_type"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<Long, Double> upsertAll(Collection<UserAction> userActions) {
+        if (userActions.isEmpty()) {
+            return Map.of();
+        }
+        int size = userActions.size();
+        Long[] userIds = new Long[size];
+        Long[] eventIds = new Long[size];
+        String[] actionTypes = new String[size];
+        Timestamp[] actionTimes = new Timestamp[size];
+        int i = 0;
+        for (UserAction userAction : userActions) {
+            userIds[i] = userAction.getUserId();
+            eventIds[i] = userAction.getEventId();
+            actionTypes[i] = userAction.getActionType().name();
+            actionTimes[i] = Timestamp.from(userAction.getActionTime());
+            i++;
+        }
+        Map<Long, Double> deltas = new HashMap<>();
+        jdbcTemplate.query(UPSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int8", userIds));
+            ps.setArray(2, connection.createArrayOf("int8", eventIds));
+            ps.setArray(3, connection.createArrayOf("varchar", actionTypes));
+            ps.setArray(4, connection.createArrayOf("timestamp", actionTimes));
+        }, (RowCallbackHandler) rs -> deltas.put(rs.getLong(1), rs.getDouble(2)));
+        return deltas;
+    }
+
+    @Override
+    public Map<Long, Double> sumWeightsByEventIds(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+        Long[] ids = eventIds.toArray(new Long[0]);
+        Map<Long, Double> totals = new HashMap<>();
+        jdbcTemplate.query(SUM_WEIGHTS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("int8", ids)),
+                (RowCallbackHandler) rs -> totals.put(rs.getLong(1), rs.getDouble(2)));
+        return totals;
+    }
+
+    private static String rankOf(String column) {
+        return "case " + column + " when 'LIKE' then 3 when 'REGISTER' then 2 else 1 end";
+    }
+
+    // Веса берутся из ActionType, чтобы SQL и Java не расходились
+    private static String weightOf(String column) {
+        StringBuilder sql = new StringBuilder("case ").append(column);
+        for (ActionType actionType : ActionType.values()) {
+            sql.append(" when '").append(actionType.name()).append("' then ").append(actionType.getWeight());
+        }
+        return sql.append(" end").toString();
+    }
+}
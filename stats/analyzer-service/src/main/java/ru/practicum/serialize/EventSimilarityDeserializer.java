@@ -1,9 +1,9 @@
 package ru.practicum.serialize;
 
-
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.serialize.AvroDeserializer;
 
-public class EventSimilarityDeserializer extends BaseAvroDeserializer<EventSimilarityAvro> {
+public class EventSimilarityDeserializer extends AvroDeserializer<EventSimilarityAvro> {
     public EventSimilarityDeserializer() {
         super(EventSimilarityAvro.getClassSchema());
     }
@@ -2,12 +2,16 @@ package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.model.ActionType;
 import ru.practicum.model.UserAction;
 import ru.practicum.repository.UserActionRepository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -15,14 +19,22 @@ public class UserActionService {
 
     private final UserActionRepository repository;
 
-    public void saveActionType(UserActionAvro userActionAvro) {
-        UserAction userAction = new UserAction();
-        userAction.setUserId(userAction.getUserId());
-        userAction.setEventId(userAction.getEventId());
-        userAction.setActionType(ActionType.valueOf(userActionAvro.getActionType().name()));
-        userAction.setActionTime(userActionAvro.getTimestamp());
-
-        repository.save(userAction);
+    // Пачка схлопывается до одного действия на пару (пользователь, мероприятие) — с наибольшим весом
+    // и последним временем — и записывается одним upsert; повторная доставка пачки ничего не меняет.
+    // Возвращает прирост суммы весов по мероприятиям для поддержания кэша итогов
+    @Transactional
+    public Map<Long, Double> saveActionTypes(List<UserActionAvro> userActionAvros) {
+        Map<ActionKey, UserAction> strongest = new HashMap<>();
+        for (UserActionAvro userActionAvro : userActionAvros) {
+            UserAction userAction = new UserAction();
+            userAction.setUserId(userActionAvro.getUserId());
+            userAction.setEventId(userActionAvro.getEventId());
+            userAction.setActionType(ActionType.valueOf(userActionAvro.getActionType().name()));
+            userAction.setActionTime(userActionAvro.getTimestamp());
+            strongest.merge(new ActionKey(userAction.getUserId(), userAction.getEventId()), userAction,
+                    UserActionService::merge);
+        }
+        return repository.upsertAll(strongest.values());
     }
 
     public List<UserAction> getUserActionByUserId(Long userId) {
@@ -32,4 +44,21 @@ public class UserActionService {
     public List<UserAction> getUserActionByEventId(Long eventId) {
         return repository.findAllByEventId(eventId);
     }
+
+    public Map<Long, Double> getWeightSumsByEventIds(Collection<Long> eventIds) {
+        return repository.sumWeightsByEventIds(eventIds);
+    }
+
+    private static UserAction merge(UserAction previous, UserAction current) {
+        UserAction result = current.getActionType().getWeight() > previous.getActionType().getWeight()
+                ? current
+                : previous;
+        if (current.getActionTime().isAfter(result.getActionTime())) {
+            result.setActionTime(current.getActionTime());
+        }
+        return result;
+    }
+
+    private record ActionKey(long userId, long eventId) {
+    }
 }
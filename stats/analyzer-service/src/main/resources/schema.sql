@@ -14,4 +14,41 @@ create table if not exists event_similarity
     event_b    int8      NOT NULL,
     score      float8    NOT NULL,
     event_time timestamp NOT NULL
-);
\ No newline at end of file
+);
+
+-- одна строка на пару мероприятий: дубликаты, накопленные до появления индекса, схлопываются до последней записи
+delete
+from event_similarity older
+    using event_similarity newer
+where older.event_a = newer.event_a
+  and older.event_b = newer.event_b
+  and older.id < newer.id
+  and not exists (select 1 from pg_indexes where indexname = 'event_similarity_pair_uq');
+
+create unique index if not exists event_similarity_pair_uq on event_similarity (event_a, event_b);
+
+-- до хранения по имени тип действия записывался порядковым номером перечисления ActionType
+update user_action
+set action_type = case action_type when '0' then 'VIEW' when '1' then 'REGISTER' when '2' then 'LIKE' end
+where action_type in ('0', '1', '2');
+
+-- одна строка на пару (пользователь, мероприятие): остаётся действие с наибольшим весом, время — последнее
+update user_action ua
+set action_time = latest.action_time
+from (select user_id, event_id, max(action_time) as action_time from user_action group by user_id, event_id) latest
+where ua.user_id = latest.user_id
+  and ua.event_id = latest.event_id
+  and ua.action_time < latest.action_time
+  and not exists (select 1 from pg_indexes where indexname = 'user_action_user_event_uq');
+
+delete
+from user_action ua
+    using (select id,
+                  row_number() over (partition by user_id, event_id
+                      order by case action_type when 'LIKE' then 3 when 'REGISTER' then 2 else 1 end desc, id desc) as rn
+           from user_action) ranked
+where ua.id = ranked.id
+  and ranked.rn > 1
+  and not exists (select 1 from pg_indexes where indexname = 'user_action_user_event_uq');
+
+create unique index if not exists user_action_user_event_uq on user_action (user_id, event_id);
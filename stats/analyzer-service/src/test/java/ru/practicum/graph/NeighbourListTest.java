@@ -0,0 +1,108 @@
+package ru.practicum.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NeighbourListTest {
+    private static final int MAX_NEIGHBOURS = 10;
+
+    // Сходство пары в потоке только растёт, поэтому ограниченный список должен совпадать
+    // с первыми k соседями полной сортировки по итоговым оценкам
+    @Test
+    void matchesFullSortWhenScoresGrow() {
+        Random random = new Random(5);
+        NeighbourList list = new NeighbourList(MAX_NEIGHBOURS);
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            long eventId = random.nextInt(200);
+            double score = scores.getOrDefault(eventId, 0.0) + random.nextDouble();
+            scores.put(eventId, score);
+            list.update(eventId, score, i);
+        }
+
+        List<Map.Entry<Long, Double>> expected = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(MAX_NEIGHBOURS)
+                .toList();
+        Neighbours neighbours = list.snapshot();
+        assertEquals(expected.size(), neighbours.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals((long) expected.get(i).getKey(), neighbours.eventId(i));
+            assertEquals(expected.get(i).getValue(), neighbours.score(i));
+        }
+    }
+
+    @Test
+    void keepsOrderWhenScoreDecreasesAndAfterRemove() {
+        NeighbourList list = new NeighbourList(MAX_NEIGHBOURS);
+        list.update(1, 0.9, 0L);
+        list.update(2, 0.7, 0L);
+        list.update(3, 0.5, 0L);
+
+        list.update(1, 0.1, 0L);
+        list.remove(2);
+
+        Neighbours neighbours = list.snapshot();
+        assertEquals(2, neighbours.size());
+        assertEquals(3, neighbours.eventId(0));
+        assertEquals(1, neighbours.eventId(1));
+        assertEquals(-1.0, list.score(2, -1.0));
+    }
+
+    @Test
+    void ignoresCandidateWeakerThanFullList() {
+        NeighbourList list = new NeighbourList(2);
+        list.update(1, 0.9, 0L);
+        list.update(2, 0.8, 0L);
+
+        list.update(3, 0.1, 0L);
+        list.update(4, 0.85, 0L);
+
+        Neighbours neighbours = list.snapshot();
+        assertEquals(2, neighbours.size());
+        assertEquals(1, neighbours.eventId(0));
+        assertEquals(4, neighbours.eventId(1));
+        assertTrue(list.score(3, -1.0) < 0);
+    }
+
+    // Приближение: кандидат, отвергнутый при заполненном списке, не возвращается после снижения
+    // оценки соседа, хотя по полной сортировке вошёл бы в top-k
+    @Test
+    void rejectedCandidateIsNotRestoredWhenNeighbourScoreDrops() {
+        NeighbourList list = new NeighbourList(2);
+        list.update(1, 0.9, 0L);
+        list.update(2, 0.8, 0L);
+        list.update(3, 0.5, 0L);
+
+        list.update(2, 0.1, 1L);
+
+        Neighbours neighbours = list.snapshot();
+        assertEquals(2, neighbours.size());
+        assertEquals(1, neighbours.eventId(0));
+        assertEquals(2, neighbours.eventId(1));
+        assertEquals(-1.0, list.score(3, -1.0));
+
+        list.update(3, 0.5, 2L);
+        assertEquals(3, list.snapshot().eventId(1));
+    }
+
+    @Test
+    void ignoresUpdateOlderThanStoredScore() {
+        NeighbourList list = new NeighbourList(MAX_NEIGHBOURS);
+        list.update(1, 0.3, 200L);
+
+        list.update(1, 0.9, 100L);
+
+        assertEquals(0.3, list.score(1, -1.0));
+        list.update(1, 0.5, 200L);
+        assertEquals(0.5, list.score(1, -1.0));
+    }
+}
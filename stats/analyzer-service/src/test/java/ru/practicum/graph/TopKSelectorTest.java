@@ -0,0 +1,60 @@
+package ru.practicum.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Отбор k лучших сверяется с полной сортировкой всех кандидатов
+class TopKSelectorTest {
+
+    @Test
+    void matchesFullSortForVariousLimits() {
+        Random random = new Random(11);
+        for (int limit : new int[]{1, 5, 16, 17, 100, 1_000}) {
+            double[] scores = random.doubles(500).toArray();
+            TopKSelector selector = new TopKSelector(limit);
+            for (int id = 0; id < scores.length; id++) {
+                selector.offer(id, scores[id]);
+            }
+            selector.sortDescending();
+
+            List<Integer> expected = IntStream.range(0, scores.length).boxed()
+                    .sorted(Comparator.comparingDouble((Integer id) -> scores[id]).reversed())
+                    .limit(limit)
+                    .toList();
+            assertEquals(expected.size(), selector.size(), "limit " + limit);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals((long) expected.get(i), selector.idAt(i), "limit " + limit + ", позиция " + i);
+                assertEquals(scores[expected.get(i)], selector.scoreAt(i));
+            }
+        }
+    }
+
+    @Test
+    void zeroLimitSelectsNothing() {
+        TopKSelector selector = new TopKSelector(0);
+        selector.offer(1, 1.0);
+        selector.sortDescending();
+
+        assertEquals(0, selector.size());
+    }
+
+    @Test
+    void keepsAllCandidatesWhenFewerThanLimit() {
+        TopKSelector selector = new TopKSelector(Long.MAX_VALUE);
+        selector.offer(1, 0.2);
+        selector.offer(2, 0.9);
+        selector.offer(3, 0.5);
+        selector.sortDescending();
+
+        assertEquals(3, selector.size());
+        assertEquals(2, selector.idAt(0));
+        assertEquals(3, selector.idAt(1));
+        assertEquals(1, selector.idAt(2));
+    }
+}
@@ -1,7 +1,7 @@
 package ru.practicum.ewm.config;
 
 import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.VoidSerializer;
+import org.apache.kafka.common.serialization.LongSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,10 +24,11 @@ public class KafkaProducerConfig {
     private String groupId;
 
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<Long, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, VoidSerializer.class); // Ключи не используются
+        // Ключ — id пользователя: все действия пользователя попадают в одну партицию
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserActionSerializer.class);
         // Дополнительные настройки для надёжности
         configProps.put(ProducerConfig.ACKS_CONFIG, "all"); // Гарантия доставки
@@ -38,7 +39,7 @@ public class KafkaProducerConfig {
     }
 
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
+    public KafkaTemplate<Long, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
 }
@@ -1,13 +1,20 @@
 package ru.practicum.ewm.grpc;
 
 import com.google.protobuf.Empty;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 import ru.practicum.ewm.grpc.stats.action.UserActionProto;
 import ru.practicum.ewm.grpc.stats.collector.UserActionControllerGrpc;
 import ru.practicum.ewm.service.UserActionService;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
 @GrpcService
 @RequiredArgsConstructor
 public class UserActionController extends UserActionControllerGrpc.UserActionControllerImplBase {
@@ -16,7 +23,53 @@ public class UserActionController extends UserActionControllerGrpc.UserActionCon
 
     @Override
     public void collectUserAction(UserActionProto request, StreamObserver<Empty> responseObserver) {
-        service.collectUserAction(request);
+        try {
+            service.collectUserAction(request);
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Ошибка при обработке действия пользователя: {}", request, e);
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Внутренняя ошибка сервера: " + e.getMessage())
+                    .withCause(e)
+                    .asRuntimeException());
+        }
     }
 
+    // Все действия потока отправляются в продюсер без ожидания, затем один flush;
+    // ответ уходит, когда Kafka подтвердила всю пачку
+    @Override
+    public StreamObserver<UserActionProto> collectUserActions(StreamObserver<Empty> responseObserver) {
+        return new StreamObserver<>() {
+            private final List<CompletableFuture<?>> pending = new ArrayList<>();
+
+            @Override
+            public void onNext(UserActionProto request) {
+                pending.add(service.collectUserAction(request));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("Клиент прервал поток действий, уже переданные в продюсер: {}", pending.size(), t);
+            }
+
+            @Override
+            public void onCompleted() {
+                service.flush();
+                CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).whenComplete((result, e) -> {
+                    if (e == null) {
+                        log.debug("Пачка из {} действий записана в Kafka", pending.size());
+                        responseObserver.onNext(Empty.getDefaultInstance());
+                        responseObserver.onCompleted();
+                    } else {
+                        log.error("Не удалось записать пачку из {} действий в Kafka", pending.size(), e);
+                        responseObserver.onError(Status.UNAVAILABLE
+                                .withDescription("Не удалось записать действия: " + e.getMessage())
+                                .withCause(e)
+                                .asRuntimeException());
+                    }
+                });
+            }
+        };
+    }
 }
@@ -4,22 +4,32 @@ import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.grpc.stats.action.UserActionProto;
 import ru.practicum.ewm.mapper.UserActionMapper;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class UserActionService {
 
-    private final KafkaTemplate kafkaTemplate;
+    private final KafkaTemplate<Long, Object> kafkaTemplate;
     @Value("${kafka.topic}")
     private String topic;
 
-    public void collectUserAction(UserActionProto request) {
+    public CompletableFuture<SendResult<Long, Object>> collectUserAction(UserActionProto request) {
         UserActionAvro userActionAvro = UserActionMapper.mapProtoToUserActionAvro(request);
-        ProducerRecord<String, UserActionAvro> userActionRecord = new ProducerRecord<>(topic, userActionAvro);
-        kafkaTemplate.send(userActionRecord);
+        // Ключ по пользователю сохраняет порядок его действий и закрепляет их за одной партицией агрегатора
+        ProducerRecord<Long, Object> userActionRecord =
+                new ProducerRecord<>(topic, userActionAvro.getUserId(), userActionAvro);
+        return kafkaTemplate.send(userActionRecord);
+    }
+
+    // Отправляет накопленные в продюсере записи, не дожидаясь linger.ms
+    public void flush() {
+        kafkaTemplate.flush();
     }
 }
@@ -0,0 +1,159 @@
+package ru.practicum.ewm.stats.serialize;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Общий Avro-десериализатор для потребителей stats. BinaryDecoder переиспользуется в пределах потока,
+// а ByteBuffer от Kafka декодируется без копирования в промежуточный byte[].
+// При avro.deserializer.reuse-records=true записи берутся из кольца экземпляров размером
+// не меньше max.poll.records: в пределах одного poll экземпляры не повторяются, поэтому пакетный
+// слушатель получает независимые объекты. Слушатель не должен хранить записи после обработки пачки.
+// Записи с заголовком single-object encoding читаются по схеме писателя из SchemaCache с приведением
+// к схеме читателя; записи без заголовка (от продюсеров до обновления) читаются схемой читателя.
+// Запись с маркером, но неизвестным отпечатком считается записью без заголовка, только если схема
+// читателя разбирает её без остатка; иначе выбрасывается SerializationException.
+// Прежние версии схем подключаются через avro.deserializer.writer-schemas — ресурсы .avsc через запятую,
+// поэтому при смене схемы сначала обновляются потребители, затем продюсеры.
+public class AvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
+    public static final String REUSE_RECORDS_CONFIG = "avro.deserializer.reuse-records";
+    public static final String WRITER_SCHEMAS_CONFIG = "avro.deserializer.writer-schemas";
+
+    private static final int DEFAULT_MAX_POLL_RECORDS = 500;
+
+    private final DecoderFactory decoderFactory = DecoderFactory.get();
+    private final DatumReader<T> reader;
+    private final Schema schema;
+    private final long fingerprint;
+    private final Map<Long, DatumReader<T>> resolvingReaders = new ConcurrentHashMap<>();
+    private final ThreadLocal<DecoderState> decoderState = ThreadLocal.withInitial(DecoderState::new);
+    private int recordPoolSize;
+
+    public AvroDeserializer(Schema schema) {
+        this.schema = schema;
+        this.reader = new SpecificDatumReader<>(schema);
+        this.fingerprint = SchemaCache.register(schema);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object writerSchemas = configs.get(WRITER_SCHEMAS_CONFIG);
+        if (writerSchemas != null) {
+            for (String resource : writerSchemas.toString().split(",")) {
+                if (!resource.isBlank()) {
+                    SchemaCache.registerResource(resource.trim());
+                }
+            }
+        }
+        if (Boolean.parseBoolean(String.valueOf(configs.get(REUSE_RECORDS_CONFIG)))) {
+            Object maxPollRecords = configs.get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG);
+            recordPoolSize = maxPollRecords == null
+                    ? DEFAULT_MAX_POLL_RECORDS
+                    : Integer.parseInt(maxPollRecords.toString());
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return data == null ? null : deserialize(topic, null, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        DecoderState state = decoderState.get();
+        if (!SchemaCache.hasHeader(data)) {
+            return decode(topic, reader, data, state);
+        }
+        long writerFingerprint = SchemaCache.fingerprint(data);
+        DatumReader<T> writerReader = readerFor(writerFingerprint);
+        if (writerReader != null) {
+            return decode(topic, writerReader, data.duplicate().position(data.position() + SchemaCache.HEADER_SIZE),
+                    state);
+        }
+        // неизвестный отпечаток: запись без заголовка принимается, только если схема читателя
+        // разбирает её целиком; иначе схема писателя не зарегистрирована и молча читать нельзя
+        T legacy = decodeLegacy(data, state);
+        if (legacy == null) {
+            throw new SerializationException("Неизвестный отпечаток схемы писателя " + writerFingerprint
+                    + " в топике [" + topic + "]: добавьте схему в " + WRITER_SCHEMAS_CONFIG);
+        }
+        return legacy;
+    }
+
+    private T decode(String topic, DatumReader<T> datumReader, ByteBuffer payload, DecoderState state) {
+        try {
+            return datumReader.read(state.nextReusable(), state.decoderFor(payload));
+        } catch (Exception e) {
+            throw new SerializationException("Ошибка десериализации данных из топика [" + topic + "]", e);
+        }
+    }
+
+    private T decodeLegacy(ByteBuffer data, DecoderState state) {
+        try {
+            T record = reader.read(state.nextReusable(), state.decoderFor(data));
+            return state.decoder.isEnd() ? record : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private DatumReader<T> readerFor(long writerFingerprint) {
+        if (writerFingerprint == fingerprint) {
+            return reader;
+        }
+        return resolvingReaders.computeIfAbsent(writerFingerprint, key -> {
+            Schema writerSchema = SchemaCache.find(key);
+            return writerSchema == null ? null : new SpecificDatumReader<>(writerSchema, schema);
+        });
+    }
+
+    private final class DecoderState {
+        private BinaryDecoder decoder;
+        private Object[] pool;
+        private int next;
+
+        private BinaryDecoder decoderFor(ByteBuffer payload) {
+            if (payload.hasArray()) {
+                decoder = decoderFactory.binaryDecoder(payload.array(),
+                        payload.arrayOffset() + payload.position(), payload.remaining(), decoder);
+            } else {
+                decoder = decoderFactory.binaryDecoder(new ByteBufferInputStream(List.of(payload.duplicate())),
+                        decoder);
+            }
+            return decoder;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T nextReusable() {
+            if (recordPoolSize == 0) {
+                return null;
+            }
+            if (pool == null) {
+                pool = new Object[recordPoolSize];
+            }
+            int index = next;
+            next = (next + 1) % pool.length;
+            if (pool[index] == null) {
+                pool[index] = SpecificData.get().newRecord(null, schema);
+            }
+            return (T) pool[index];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.ewm.stats.serialize;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Общий Avro-сериализатор для продюсеров stats: DatumWriter создаётся один раз на схему,
+// буфер и BinaryEncoder переиспользуются в пределах потока. На каждую запись выделяется
+// только итоговый byte[], которого требует Kafka. Перед данными пишется заголовок с отпечатком схемы
+// (Avro single-object encoding), по которому потребитель находит схему писателя в SchemaCache.
+// Содержимое записей пишется в DEBUG не чаще одного раза на avro.serializer.debug.sample-every записей.
+public class AvroSerializer<T extends SpecificRecordBase> implements Serializer<T> {
+    public static final String DEBUG_SAMPLE_EVERY_CONFIG = "avro.serializer.debug.sample-every";
+
+    private static final Logger log = LoggerFactory.getLogger(AvroSerializer.class);
+    private static final HexFormat hexFormat = HexFormat.ofDelimiter(":");
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final long DEFAULT_SAMPLE_EVERY = 1000;
+
+    private final DatumWriter<T> writer;
+    private final byte[] header;
+    private final ThreadLocal<EncoderState> encoderState = ThreadLocal.withInitial(EncoderState::new);
+    private final AtomicLong serialized = new AtomicLong();
+    private long sampleEvery = DEFAULT_SAMPLE_EVERY;
+
+    public AvroSerializer(Class<T> recordClass) {
+        this.writer = new SpecificDatumWriter<>(recordClass);
+        this.header = SchemaCache.header(SchemaCache.register(SpecificData.get().getSchema(recordClass)));
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object value = configs.get(DEBUG_SAMPLE_EVERY_CONFIG);
+        if (value != null) {
+            sampleEvery = Math.max(1, Long.parseLong(value.toString()));
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, T record) {
+        if (record == null) {
+            return null;
+        }
+
+        EncoderState state = encoderState.get();
+        try {
+            state.buffer.reset();
+            state.buffer.writeBytes(header);
+            writer.write(record, state.encoder);
+            state.encoder.flush();
+            byte[] bytes = state.buffer.toByteArray();
+
+            if (log.isDebugEnabled() && serialized.getAndIncrement() % sampleEvery == 0) {
+                log.debug("Запись для топика [{}] сериализована в формат Avro:\n{}", topic, hexFormat.formatHex(bytes));
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new SerializationException("Ошибка сериализации данных для топика [" + topic + "]", e);
+        }
+    }
+
+    private static final class EncoderState {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        // directBinaryEncoder пишет сразу в поток без собственного буфера, поэтому flush дешёвый
+        private final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(buffer, null);
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.ewm.stats.serialize;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Локальный реестр схем по 64-битному отпечатку (CRC-64-AVRO канонической формы) вместо внешнего schema registry.
+// Схемы текущих классов регистрируются сериализаторами и десериализаторами, прежние версии
+// подключаются десериализатору через avro.deserializer.writer-schemas.
+// Заголовок single-object encoding: 0xC3 0x01 и отпечаток схемы писателя в little-endian.
+public final class SchemaCache {
+    public static final int HEADER_SIZE = 10;
+
+    private static final byte MARKER_FIRST = (byte) 0xC3;
+    private static final byte MARKER_SECOND = (byte) 0x01;
+    private static final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+
+    private SchemaCache() {
+    }
+
+    public static long register(Schema schema) {
+        long fingerprint = SchemaNormalization.parsingFingerprint64(schema);
+        schemas.putIfAbsent(fingerprint, schema);
+        return fingerprint;
+    }
+
+    public static Schema find(long fingerprint) {
+        return schemas.get(fingerprint);
+    }
+
+    // Схема из ресурса в classpath, например avro/history/UserActionAvro-v1.avsc
+    public static long registerResource(String resource) {
+        try (InputStream stream = SchemaCache.class.getClassLoader().getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new SerializationException("Не найден ресурс со схемой Avro: " + resource);
+            }
+            return register(new Schema.Parser().parse(stream));
+        } catch (IOException e) {
+            throw new SerializationException("Ошибка чтения схемы Avro из ресурса " + resource, e);
+        }
+    }
+
+    public static byte[] header(long fingerprint) {
+        return ByteBuffer.allocate(HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .put(MARKER_FIRST)
+                .put(MARKER_SECOND)
+                .putLong(fingerprint)
+                .array();
+    }
+
+    public static boolean hasHeader(ByteBuffer data) {
+        int position = data.position();
+        return data.remaining() > HEADER_SIZE
+                && data.get(position) == MARKER_FIRST
+                && data.get(position + 1) == MARKER_SECOND;
+    }
+
+    public static long fingerprint(ByteBuffer data) {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(data.position() + 2);
+    }
+}
@@ -0,0 +1,158 @@
+package ru.practicum.ewm.stats.serialize;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvroDeserializerTest {
+    private static final String TOPIC = "stats.user-actions.v1";
+    private static final String OLD_SCHEMA = "avro/history/UserActionAvro-v0.avsc";
+
+    private final AvroSerializer<UserActionAvro> serializer = new AvroSerializer<>(UserActionAvro.class);
+
+    @Test
+    void readsHeaderedRecordOfCurrentSchema() {
+        UserActionAvro action = action(1L, 10L, ActionTypeAvro.LIKE);
+        byte[] bytes = serializer.serialize(TOPIC, action);
+
+        long fingerprint = SchemaCache.register(UserActionAvro.getClassSchema());
+        assertArrayEquals(SchemaCache.header(fingerprint), Arrays.copyOf(bytes, SchemaCache.HEADER_SIZE));
+        assertEquals(action, deserializer(Map.of()).deserialize(TOPIC, bytes));
+    }
+
+    // Поле, которого нет в схеме читателя, пропускается при приведении к ней
+    @Test
+    void readsHeaderedRecordOfRegisteredOlderSchema() throws IOException {
+        Schema oldSchema = parse(OLD_SCHEMA);
+        GenericRecord old = new GenericData.Record(oldSchema);
+        old.put("userId", 2L);
+        old.put("eventId", 20L);
+        old.put("actionType", new GenericData.EnumSymbol(oldSchema.getField("actionType").schema(), "REGISTER"));
+        old.put("timestamp", 1_700_000_000_000L);
+        old.put("source", "web");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(SchemaCache.header(SchemaCache.register(oldSchema)));
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(oldSchema).write(old, encoder);
+        encoder.flush();
+
+        UserActionAvro result = deserializer(Map.of(AvroDeserializer.WRITER_SCHEMAS_CONFIG, OLD_SCHEMA))
+                .deserialize(TOPIC, out.toByteArray());
+
+        assertEquals(action(2L, 20L, ActionTypeAvro.REGISTER), result);
+    }
+
+    @Test
+    void readsLegacyRecordWithoutHeader() throws IOException {
+        UserActionAvro action = action(3L, 30L, ActionTypeAvro.VIEW);
+
+        assertEquals(action, deserializer(Map.of()).deserialize(TOPIC, headerless(action)));
+    }
+
+    // userId = -98 кодируется байтами 0xC3 0x01, то есть запись без заголовка начинается с маркера;
+    // отпечаток из следующих байтов неизвестен, и запись читается целиком схемой читателя
+    @Test
+    void readsLegacyRecordThatStartsWithMarker() throws IOException {
+        UserActionAvro action = action(-98L, 1_000_000_000L, ActionTypeAvro.LIKE);
+        byte[] bytes = headerless(action);
+        assertTrue(SchemaCache.hasHeader(ByteBuffer.wrap(bytes)));
+
+        assertEquals(action, deserializer(Map.of()).deserialize(TOPIC, bytes));
+    }
+
+    @Test
+    void rejectsHeaderWithUnknownFingerprint() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(SchemaCache.header(0x0123456789ABCDEFL));
+        out.write(headerless(action(4L, 40L, ActionTypeAvro.LIKE)));
+
+        SerializationException error = assertThrows(SerializationException.class,
+                () -> deserializer(Map.of()).deserialize(TOPIC, out.toByteArray()));
+        assertTrue(error.getMessage().contains(String.valueOf(0x0123456789ABCDEFL)));
+    }
+
+    @Test
+    void readsRecordFromDirectBuffer() {
+        UserActionAvro action = action(5L, 50L, ActionTypeAvro.REGISTER);
+        byte[] bytes = serializer.serialize(TOPIC, action);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+        assertEquals(action, deserializer(Map.of()).deserialize(TOPIC, null, direct));
+    }
+
+    // Пакетный слушатель получает за один poll не больше max.poll.records записей,
+    // и среди них не должно быть одного и того же экземпляра
+    @Test
+    void pooledRecordsAreDistinctWithinOnePoll() {
+        int maxPollRecords = 5;
+        AvroDeserializer<UserActionAvro> deserializer = deserializer(Map.of(
+                AvroDeserializer.REUSE_RECORDS_CONFIG, "true",
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords));
+
+        Set<UserActionAvro> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        UserActionAvro[] batch = new UserActionAvro[maxPollRecords];
+        for (int i = 0; i < maxPollRecords; i++) {
+            batch[i] = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, action(i, 100L + i, ActionTypeAvro.VIEW)));
+            instances.add(batch[i]);
+        }
+
+        assertEquals(maxPollRecords, instances.size());
+        for (int i = 0; i < maxPollRecords; i++) {
+            assertEquals(action(i, 100L + i, ActionTypeAvro.VIEW), batch[i]);
+        }
+        UserActionAvro next = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, action(9L, 9L, ActionTypeAvro.LIKE)));
+        assertSame(batch[0], next);
+        assertNotSame(batch[1], next);
+    }
+
+    private static AvroDeserializer<UserActionAvro> deserializer(Map<String, ?> configs) {
+        AvroDeserializer<UserActionAvro> deserializer = new AvroDeserializer<>(UserActionAvro.getClassSchema());
+        deserializer.configure(configs, false);
+        return deserializer;
+    }
+
+    private static UserActionAvro action(long userId, long eventId, ActionTypeAvro type) {
+        return new UserActionAvro(userId, eventId, type, Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    private static byte[] headerless(UserActionAvro action) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new SpecificDatumWriter<>(UserActionAvro.class).write(action, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static Schema parse(String resource) throws IOException {
+        try (InputStream stream = AvroDeserializerTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new Schema.Parser().parse(stream);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package ewm.client;
+
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.grpc.stats.action.ActionTypeProto;
+import ru.practicum.ewm.grpc.stats.action.UserActionProto;
+import ru.practicum.ewm.grpc.stats.collector.UserActionControllerGrpc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Неблокирующая отправка действий в коллектор: вызывающий поток только кладёт действие в ограниченный
+// буфер, фоновый поток забирает его пачками и отправляет асинхронным стабом, по потоку на пачку.
+// При переполнении действие отбрасывается; в режиме SAMPLE после порога заполнения
+// из просмотров пропускается лишь доля sample-rate — лайки и регистрации не сэмплируются.
+@Component
+public class AsyncCollectorClient {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncCollectorClient.class);
+
+    public enum OverflowPolicy {
+        DROP,
+        SAMPLE
+    }
+
+    private final ConcurrentLinkedQueue<UserActionProto> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long timeoutMillis;
+    private final Semaphore inFlight;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleThreshold;
+    private final double sampleRate;
+
+    private final Counter queued;
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter failed;
+
+    @GrpcClient("collector-service")
+    private UserActionControllerGrpc.UserActionControllerStub client;
+
+    private volatile boolean running;
+    private Thread sender;
+
+    public AsyncCollectorClient(@Value("${stats.collector.async.capacity:10000}") int capacity,
+                                @Value("${stats.collector.async.batch-size:500}") int batchSize,
+                                @Value("${stats.collector.async.linger-ms:20}") long lingerMillis,
+                                @Value("${stats.collector.async.timeout-ms:5000}") long timeoutMillis,
+                                @Value("${stats.collector.async.max-in-flight:4}") int maxInFlight,
+                                @Value("${stats.collector.async.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+                                @Value("${stats.collector.async.sample-threshold:0.5}") double sampleThreshold,
+                                @Value("${stats.collector.async.sample-rate:0.1}") double sampleRate,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleThreshold = (int) (capacity * sampleThreshold);
+        this.sampleRate = sampleRate;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.queued = counter(registry, "queued");
+        this.sent = counter(registry, "sent");
+        this.dropped = counter(registry, "dropped");
+        this.failed = counter(registry, "failed");
+        Gauge.builder("stats.collector.client.buffer.size", buffered, AtomicInteger::get)
+                .description("Действия, ожидающие отправки в коллектор")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender = new Thread(this::runSender, "collector-client-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    // Возвращает false, если действие отброшено политикой переполнения
+    public boolean collectUserAction(UserActionProto action) {
+        int size = buffered.incrementAndGet();
+        if (size > capacity || shouldSample(action, size)) {
+            buffered.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        // время фиксируется при постановке в очередь, чтобы задержка отправки его не искажала
+        if (!action.hasTimestamp()) {
+            Instant now = Instant.now();
+            action = action.toBuilder()
+                    .setTimestamp(Timestamp.newBuilder().setSeconds(now.getEpochSecond()).setNanos(now.getNano()))
+                    .build();
+        }
+        buffer.offer(action);
+        queued.increment();
+        return true;
+    }
+
+    public double getQueuedCount() {
+        return queued.count();
+    }
+
+    public double getSentCount() {
+        return sent.count();
+    }
+
+    public double getDroppedCount() {
+        return dropped.count();
+    }
+
+    public double getFailedCount() {
+        return failed.count();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(sender);
+        sender.join(timeoutMillis);
+    }
+
+    private boolean shouldSample(UserActionProto action, int size) {
+        return overflowPolicy == OverflowPolicy.SAMPLE
+                && size > sampleThreshold
+                && action.getActionType() == ActionTypeProto.ACTION_VIEW
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate;
+    }
+
+    private void runSender() {
+        List<UserActionProto> batch = new ArrayList<>(batchSize);
+        while (running || buffered.get() > 0) {
+            drainTo(batch);
+            // неполную пачку даём добрать в течение linger
+            if (batch.size() < batchSize && running) {
+                LockSupport.parkNanos(lingerNanos);
+                drainTo(batch);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Не удалось отправить пачку из {} действий в коллектор", batch.size(), e);
+                failed.increment(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    private void drainTo(List<UserActionProto> batch) {
+        UserActionProto action;
+        while (batch.size() < batchSize && (action = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            batch.add(action);
+        }
+    }
+
+    // Пачка уходит одним клиентским потоком CollectUserActions и подтверждается целиком.
+    // Число неподтверждённых пачек ограничено, чтобы медленный коллектор не раздувал память клиента
+    private void send(List<UserActionProto> batch) throws InterruptedException {
+        int size = batch.size();
+        inFlight.acquire();
+        StreamObserver<UserActionProto> stream;
+        try {
+            stream = client.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS)
+                    .collectUserActions(new StreamObserver<>() {
+                        @Override
+                        public void onNext(Empty value) {
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            inFlight.release();
+                            failed.increment(size);
+                            log.warn("Коллектор не подтвердил пачку из {} действий: {}", size, t.getMessage());
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            inFlight.release();
+                            sent.increment(size);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        // ошибка посреди пачки отменяет вызов, и она учитывается в onError как неподтверждённая
+        try {
+            for (UserActionProto action : batch) {
+                stream.onNext(action);
+            }
+            stream.onCompleted();
+        } catch (RuntimeException e) {
+            stream.onError(e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("stats.collector.client.actions")
+                .tag("result", result)
+                .description("Действия пользователей, переданные асинхронному клиенту коллектора")
+                .register(registry);
+    }
+}